@@ -2,14 +2,24 @@ import eventHandler.EventHandler;
 import gui.GUI;
 import imageProcessor.ImageProcessor;
 
+import java.io.IOException;
+import java.text.ParseException;
+
 
 public class Main {
 
+    private static final String CONVERT_OPTION = "--convert";
+
     /**
      * Initializes each of the primary components of the program, then associates them with one another.
      * @param args The commandline arguments passed to the program.
      */
     public static void main(String[] args) {
+        if (args.length == 3 && args[0].equals(CONVERT_OPTION)) {
+            convertToBinaryFile(args[1], args[2]);
+            return;
+        }
+
         EventHandler handler = new EventHandler();
         GUI gui = new GUI();
         ImageProcessor imageProcessor = new ImageProcessor(handler, gui);
@@ -31,4 +41,17 @@ public class Main {
             handler.loadFileOnStartup(filename);
         }
     }
+
+    /**
+     * Converts a text TIMELINE file into the binary TIMELINE file format without opening the GUI, as in "--convert timeline.tmln timeline.tmlb".
+     * @param sourcePath The path to the text TIMELINE file.
+     * @param destinationPath The path to the binary TIMELINE file to be written.
+     */
+    private static void convertToBinaryFile(String sourcePath, String destinationPath) {
+        try { new EventHandler().convertToBinaryFile(sourcePath, destinationPath); }
+        catch (IOException | ParseException e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
 }
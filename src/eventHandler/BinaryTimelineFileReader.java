@@ -0,0 +1,231 @@
+/*
+Redstar Timeline Creator - A tool for easily creating visual timelines of events.
+Copyright (C) 2022 Xavier Mercerweiss
+
+This program is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+Redstar may be contacted for inquiry at: <redstar.software.official@gmail.com>
+ */
+
+package eventHandler;
+
+import java.awt.*;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.util.ArrayList;
+
+/**
+ * A reader which loads a timeline from the binary TIMELINE file format written by the BinaryTimelineFileWriter.
+ */
+public class BinaryTimelineFileReader implements Closeable {
+
+    private final byte[] input;
+    private final String datetimeFormat;
+    private int position;
+
+    private String timelineTitle;
+    private String titleFont;
+    private Color foregroundColor;
+    private Color backgroundColor;
+
+    private final int MINIMUM_STRING_SIZE = 1;
+    private final int COLOR_SIZE = 3;
+    private final int MINIMUM_EVENT_SIZE = 6;
+    // An event is at least its flags, 4 single-byte table indices and a single-byte starting time delta.
+
+    /**
+     * Constructs a BinaryTimelineFileReader which reads the given file.
+     * The file is read into memory in full and parsed from there, as it is compact enough that doing so costs less than reading it a byte at a time through a stream.
+     * @param filePath The path to the source file.
+     * @param datetimeFormat The format with which the times of each event will be presented.
+     * @throws IOException In the event the source file cannot be read, an IOException is thrown.
+     */
+    public BinaryTimelineFileReader(String filePath, String datetimeFormat) throws IOException {
+        this.input = Files.readAllBytes(Paths.get(filePath));
+        this.datetimeFormat = datetimeFormat;
+    }
+
+
+    // Public Methods
+
+    /**
+     * Reads the header of the source file. Must be called once, before the events are read.
+     * @throws IOException In the event of an error while reading the source file, an IOException is thrown.
+     * @throws ParseException In the event the source file is not of a supported version of the binary TIMELINE file format, a ParseException is thrown.
+     */
+    public void readHeader() throws IOException, ParseException {
+        if (readInt() != BinaryTimelineFileWriter.MAGIC_NUMBER) {
+            throw new ParseException("Source file is not a binary TIMELINE file.", 0);
+        }
+        short version = (short) (readUnsignedByte() << 8 | readUnsignedByte());
+        if (version != BinaryTimelineFileWriter.FORMAT_VERSION) {
+            throw new ParseException("Unsupported binary TIMELINE file version: " + version, 4);
+        }
+        timelineTitle = readString();
+        titleFont = readString();
+        foregroundColor = new Color(readInt());
+        backgroundColor = new Color(readInt());
+    }
+
+    /**
+     * Reads every event of the source file.
+     * @return Every event of the source file, in the order in which they are written.
+     * @throws IOException In the event of an error while reading the source file, an IOException is thrown.
+     * @throws ParseException In the event the source file contains an invalid time unit, item count or table index, a ParseException is thrown.
+     */
+    public ArrayList<Event> readEvents() throws IOException, ParseException {
+        long timeUnit = readVarLong();
+        if (timeUnit <= 0) { throw new ParseException("Invalid time unit: " + timeUnit, 0); }
+
+        String[] stringTable = new String[readCount(MINIMUM_STRING_SIZE)];
+        for (int index = 0; index < stringTable.length; index++) { stringTable[index] = readString(); }
+
+        Color[] colorTable = new Color[readCount(COLOR_SIZE)];
+        for (int index = 0; index < colorTable.length; index++) {
+            int rgb = readUnsignedByte() << 16 | readUnsignedByte() << 8 | readUnsignedByte();
+            colorTable[index] = EventFlyweights.getColor(0xFF000000 | rgb);
+        }
+
+        int eventCount = readCount(MINIMUM_EVENT_SIZE);
+        ArrayList<Event> events = new ArrayList<>(eventCount);
+        long startingTime = 0;
+        for (int index = 0; index < eventCount; index++) {
+            int flags = readUnsignedByte();
+            String name = lookUp(stringTable, readVarLong());
+            String fontName = lookUp(stringTable, readVarLong());
+            Color eventForegroundColor = readColor(colorTable);
+            Color eventBackgroundColor = readColor(colorTable);
+            startingTime += unzigzag(readVarLong());
+            boolean isSpanOfTime = (flags & BinaryTimelineFileWriter.SPAN_OF_TIME_FLAG) != 0;
+            boolean isAboveTimelineBar = (flags & BinaryTimelineFileWriter.ABOVE_TIMELINE_BAR_FLAG) != 0;
+            long endingTime = startingTime;
+            if (isSpanOfTime) { endingTime = startingTime + unzigzag(readVarLong()); }
+
+            events.add(new Event(name, startingTime * timeUnit, endingTime * timeUnit, isSpanOfTime, datetimeFormat, fontName,
+                    eventForegroundColor, eventBackgroundColor, isAboveTimelineBar));
+        }
+        return events;
+    }
+
+    @Override
+    public void close() { }
+
+
+    // Reading Methods
+
+    /**
+     * Reads a count of items, which must fit within the bytes left in the source file, so that a corrupt count cannot cause an oversized allocation.
+     * @param minimumItemSize The fewest bytes with which each item may be written.
+     * @return The count read.
+     * @throws IOException In the event of an error while reading the source file, an IOException is thrown.
+     * @throws ParseException In the event the count is out of range, a ParseException is thrown.
+     */
+    private int readCount(int minimumItemSize) throws IOException, ParseException {
+        long count = readVarLong();
+        if (count < 0 || count > Integer.MAX_VALUE || count * minimumItemSize > input.length - position) { throw new ParseException("Invalid item count: " + count, 0); }
+        return (int) count;
+    }
+
+    /**
+     * Returns the string at a given index of the string table.
+     * @param stringTable The string table of the source file.
+     * @param index The index of the requested string.
+     * @return The requested string.
+     * @throws ParseException In the event the index lies outside the string table, a ParseException is thrown.
+     */
+    private String lookUp(String[] stringTable, long index) throws ParseException {
+        if (index < 0 || index >= stringTable.length) { throw new ParseException("Invalid string table index: " + index, 0); }
+        return stringTable[(int) index];
+    }
+
+    /**
+     * Reads a color of an event, written as an index into the color table.
+     * @param colorTable The color table of the source file.
+     * @return The color read.
+     * @throws IOException In the event of an error while reading the source file, an IOException is thrown.
+     * @throws ParseException In the event the index lies outside the color table, a ParseException is thrown.
+     */
+    private Color readColor(Color[] colorTable) throws IOException, ParseException {
+        long index = readVarLong();
+        if (index < 0 || index >= colorTable.length) { throw new ParseException("Invalid color table index: " + index, 0); }
+        return colorTable[(int) index];
+    }
+
+    /**
+     * Reads a string, written as its length in bytes followed by its UTF-8 encoding.
+     * @return The string read.
+     * @throws IOException In the event of an error while reading the source file, an IOException is thrown.
+     * @throws ParseException In the event the length of the string is out of range, a ParseException is thrown.
+     */
+    private String readString() throws IOException, ParseException {
+        int length = readCount(Byte.BYTES);
+        String string = new String(input, position, length, StandardCharsets.UTF_8);
+        position += length;
+        return string;
+    }
+
+    /**
+     * Reads a single byte of the source file.
+     * @return The byte read, as an unsigned value.
+     * @throws EOFException In the event the end of the source file has been reached, an EOFException is thrown.
+     */
+    private int readUnsignedByte() throws EOFException {
+        if (position >= input.length) { throw new EOFException(); }
+        return input[position++] & 0xFF;
+    }
+
+    /**
+     * Reads a 4 byte integer written with its most significant byte first.
+     * @return The integer read.
+     * @throws EOFException In the event the end of the source file has been reached, an EOFException is thrown.
+     */
+    private int readInt() throws EOFException { return readUnsignedByte() << 24 | readUnsignedByte() << 16 | readUnsignedByte() << 8 | readUnsignedByte(); }
+
+    /**
+     * Reads a non-negative integer written using 7 bits per byte, with the high bit of each byte marking whether another byte follows.
+     * @return The value read.
+     * @throws IOException In the event of an error while reading the source file, an IOException is thrown.
+     */
+    private long readVarLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int currentByte = readUnsignedByte();
+            value |= (long) (currentByte & 0x7F) << shift;
+            if ((currentByte & 0x80) == 0) { return value; }
+        }
+        throw new IOException("Malformed variable-length integer.");
+    }
+
+    /**
+     * Reverses the zigzag encoding of a signed integer.
+     * @param value The zigzag encoded value.
+     * @return The signed value.
+     */
+    private static long unzigzag(long value) { return (value >>> 1) ^ -(value & 1); }
+
+
+    // Information Requests
+
+    public String getTimelineTitle() { return timelineTitle; }
+
+    public String getTitleFont() { return titleFont; }
+
+    public Color getForegroundColor() { return foregroundColor; }
+
+    public Color getBackgroundColor() { return backgroundColor; }
+
+}
@@ -0,0 +1,250 @@
+/*
+Redstar Timeline Creator - A tool for easily creating visual timelines of events.
+Copyright (C) 2022 Xavier Mercerweiss
+
+This program is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+Redstar may be contacted for inquiry at: <redstar.software.official@gmail.com>
+ */
+
+package eventHandler;
+
+import java.awt.*;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+
+/**
+ * A writer which saves a timeline to the binary TIMELINE file format.
+ */
+public class BinaryTimelineFileWriter implements Closeable {
+
+    /* File format, version 2:
+
+    Magic number "TMLB", format version (short)
+    Timeline title (string), title font (string), foreground RGB (int), background RGB (int)
+    Time unit in milliseconds (varint), dividing every starting and ending time
+    String table: string count (varint), followed by each string
+    Color table: color count (varint), followed by each color as red, green and blue bytes
+    Event count (varint), followed by each event:
+        flags (byte: bit 0 isSpanOfTime, bit 1 isAboveTimelineBar)
+        name index (varint), font index (varint), foreground color index (varint), background color index (varint)
+        starting time as time units since the previous event's starting time (zigzag varint)
+        ending time as time units since the event's starting time (zigzag varint, if isSpanOfTime)
+    Each string is written as its length in bytes (varint) followed by its UTF-8 encoding.
+     */
+    public static final int MAGIC_NUMBER = 0x544D4C42;
+    public static final short FORMAT_VERSION = 2;
+    public static final int SPAN_OF_TIME_FLAG = 1;
+    public static final int ABOVE_TIMELINE_BAR_FLAG = 1 << 1;
+
+    private final DataOutputStream output;
+
+    private final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Constructs a BinaryTimelineFileWriter which writes to the given file.
+     * @param filePath The path to the destination file.
+     * @throws IOException In the event the destination file cannot be opened, an IOException is thrown.
+     */
+    public BinaryTimelineFileWriter(String filePath) throws IOException {
+        this.output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filePath), BUFFER_SIZE));
+    }
+
+
+    // Public Methods
+
+    /**
+     * Writes a complete timeline to the destination file.
+     * @param timelineTitle The title of the timeline.
+     * @param titleFont The name of the font of the timeline's title.
+     * @param foregroundColor The foreground color of the timeline.
+     * @param backgroundColor The background color of the timeline.
+     * @param events The events of the timeline, preferably in chronological order.
+     * @throws IOException In the event of an error in the writing process, an IOException is thrown.
+     */
+    public void writeTimeline(String timelineTitle, String titleFont, Color foregroundColor, Color backgroundColor,
+                              Collection<Event> events) throws IOException {
+        output.writeInt(MAGIC_NUMBER);
+        output.writeShort(FORMAT_VERSION);
+        writeString(timelineTitle);
+        writeString(titleFont);
+        output.writeInt(foregroundColor.getRGB() & 0xFFFFFF);
+        output.writeInt(backgroundColor.getRGB() & 0xFFFFFF);
+
+        long timeUnit = findTimeUnit(events);
+        writeVarLong(timeUnit);
+
+        LinkedHashMap<String, Integer> stringTable = buildStringTable(events);
+        writeVarLong(stringTable.size());
+        for (String string:stringTable.keySet()) { writeString(string); }
+
+        LinkedHashMap<Integer, Integer> colorTable = buildColorTable(events);
+        writeVarLong(colorTable.size());
+        for (int rgb:colorTable.keySet()) {
+            output.writeByte(rgb >> 16);
+            output.writeByte(rgb >> 8);
+            output.writeByte(rgb);
+        }
+
+        writeVarLong(events.size());
+        long previousStartingTime = 0;
+        for (Event event:events) {
+            long startingTime = event.startingTime / timeUnit;
+            writeEvent(event, stringTable, colorTable, timeUnit, startingTime - previousStartingTime);
+            previousStartingTime = startingTime;
+        }
+    }
+
+    /**
+     * Converts a text TIMELINE file into the binary TIMELINE file format without loss of information.
+     * @param sourcePath The path to the text TIMELINE file.
+     * @param destinationPath The path to the binary TIMELINE file to be written.
+     * @param datetimeFormat The format with which the times of each event are written in the source file.
+     * @throws IOException In the event of an error while reading or writing either file, an IOException is thrown.
+     * @throws ParseException In the event of an error while parsing the source file, a ParseException is thrown.
+     */
+    public static void convertTextToBinary(String sourcePath, String destinationPath, String datetimeFormat) throws IOException, ParseException {
+        ArrayList<Event> events = new ArrayList<>();
+        try (TimelineFileReader reader = new TimelineFileReader(sourcePath, datetimeFormat);
+             BinaryTimelineFileWriter writer = new BinaryTimelineFileWriter(destinationPath)) {
+            reader.readHeader();
+            for (Event event = reader.readEvent(); event != null; event = reader.readEvent()) { events.add(event); }
+            writer.writeTimeline(reader.getTimelineTitle(), reader.getTitleFont(),
+                    reader.getForegroundColor(), reader.getBackgroundColor(), events);
+        }
+    }
+
+    @Override
+    public void close() throws IOException { output.close(); }
+
+
+    // Writing Methods
+
+    /**
+     * Collects every distinct event name and font name, assigning each an index in order of first appearance.
+     * @param events The events of the timeline.
+     * @return A map from each distinct string to its index within the string table.
+     */
+    private LinkedHashMap<String, Integer> buildStringTable(Collection<Event> events) {
+        LinkedHashMap<String, Integer> stringTable = new LinkedHashMap<>();
+        for (Event event:events) {
+            stringTable.putIfAbsent(event.name, stringTable.size());
+            stringTable.putIfAbsent(event.fontName, stringTable.size());
+        }
+        return stringTable;
+    }
+
+    /**
+     * Collects every distinct foreground and background color, assigning each an index in order of first appearance.
+     * @param events The events of the timeline.
+     * @return A map from each distinct RGB value to its index within the color table.
+     */
+    private LinkedHashMap<Integer, Integer> buildColorTable(Collection<Event> events) {
+        LinkedHashMap<Integer, Integer> colorTable = new LinkedHashMap<>();
+        for (Event event:events) {
+            colorTable.putIfAbsent(event.foregroundColor.getRGB() & 0xFFFFFF, colorTable.size());
+            colorTable.putIfAbsent(event.backgroundColor.getRGB() & 0xFFFFFF, colorTable.size());
+        }
+        return colorTable;
+    }
+
+    /**
+     * Finds the largest number of milliseconds dividing every starting and ending time, so that timelines recorded to the minute or day are written in minutes or days.
+     * @param events The events of the timeline.
+     * @return The greatest common divisor of every time, or 1 if there is none larger.
+     */
+    private long findTimeUnit(Collection<Event> events) {
+        long timeUnit = 0;
+        for (Event event:events) {
+            timeUnit = greatestCommonDivisor(timeUnit, event.startingTime);
+            if (event.isSpanOfTime) { timeUnit = greatestCommonDivisor(timeUnit, event.endingTime); }
+            if (timeUnit == 1) { return 1; }
+        }
+        return (timeUnit > 0) ? timeUnit : 1;
+    }
+
+    /**
+     * Writes a single event to the destination file.
+     * @param event The event to be written.
+     * @param stringTable The indices of each string within the string table.
+     * @param colorTable The indices of each RGB value within the color table.
+     * @param timeUnit The number of milliseconds in each unit of time written.
+     * @param startingTimeDelta The time units between the previous event's starting time and this event's starting time.
+     * @throws IOException In the event of an error in the writing process, an IOException is thrown.
+     */
+    private void writeEvent(Event event, LinkedHashMap<String, Integer> stringTable, LinkedHashMap<Integer, Integer> colorTable,
+                            long timeUnit, long startingTimeDelta) throws IOException {
+        int flags = 0;
+        if (event.isSpanOfTime) { flags |= SPAN_OF_TIME_FLAG; }
+        if (event.isAboveTimelineBar) { flags |= ABOVE_TIMELINE_BAR_FLAG; }
+        output.writeByte(flags);
+        writeVarLong(stringTable.get(event.name));
+        writeVarLong(stringTable.get(event.fontName));
+        writeVarLong(colorTable.get(event.foregroundColor.getRGB() & 0xFFFFFF));
+        writeVarLong(colorTable.get(event.backgroundColor.getRGB() & 0xFFFFFF));
+        writeVarLong(zigzag(startingTimeDelta));
+        if (event.isSpanOfTime) { writeVarLong(zigzag(event.endingTime / timeUnit - event.startingTime / timeUnit)); }
+    }
+
+    /**
+     * Writes a string as its length in bytes followed by its UTF-8 encoding, allowing strings of any length.
+     * @param string The string to be written.
+     * @throws IOException In the event of an error in the writing process, an IOException is thrown.
+     */
+    private void writeString(String string) throws IOException {
+        byte[] encodedString = string.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(encodedString.length);
+        output.write(encodedString);
+    }
+
+    /**
+     * Writes a non-negative integer using 7 bits per byte, with the high bit of each byte marking whether another byte follows.
+     * @param value The value to be written.
+     * @throws IOException In the event of an error in the writing process, an IOException is thrown.
+     */
+    private void writeVarLong(long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            output.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        output.writeByte((int) value);
+    }
+
+    /**
+     * Maps a signed integer onto a non-negative integer such that values of small magnitude remain small.
+     * @param value The signed value.
+     * @return The zigzag encoding of the value.
+     */
+    private static long zigzag(long value) { return (value << 1) ^ (value >> 63); }
+
+    /**
+     * Returns the greatest common divisor of two integers, which is negative only should it be Long.MIN_VALUE.
+     * @param first The first integer.
+     * @param second The second integer.
+     * @return The greatest common divisor of both integers, or 0 if both are 0.
+     */
+    private static long greatestCommonDivisor(long first, long second) {
+        while (second != 0) {
+            long remainder = first % second;
+            first = second;
+            second = remainder;
+        }
+        return Math.abs(first);
+    }
+
+}
@@ -0,0 +1,103 @@
+/*
+Redstar Timeline Creator - A tool for easily creating visual timelines of events.
+Copyright (C) 2022 Xavier Mercerweiss
+
+This program is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+Redstar may be contacted for inquiry at: <redstar.software.official@gmail.com>
+ */
+
+package eventHandler;
+
+import java.awt.*;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * An immutable, column-wise copy of the events of a snapshot in chronological order, from which a timeline may be laid out without reading Event objects.
+ * Each attribute of every event is held in its own array, so that a pass over a single attribute, such as the times or the side of the timeline "bar", reads contiguous memory.
+ * Names and fonts are held as references to the strings of the events, which are already shared between events wherever they are equal, so no further string pool is kept.
+ */
+public final class ColumnarEventStore {
+
+    private final int size;
+    private final long[] startingTimes;
+    private final long[] endingTimes;
+    private final int[] foregroundRGBs;
+    private final int[] backgroundRGBs;
+    private final BitSet spansOfTime;
+    private final BitSet aboveTimelineBar;
+    private final String[] names;
+    private final String[] fontNames;
+
+    /**
+     * Constructs a ColumnarEventStore of the given events.
+     * @param events The events to be stored, in chronological order.
+     */
+    ColumnarEventStore(List<Event> events) {
+        size = events.size();
+        startingTimes = new long[size];
+        endingTimes = new long[size];
+        foregroundRGBs = new int[size];
+        backgroundRGBs = new int[size];
+        spansOfTime = new BitSet(size);
+        aboveTimelineBar = new BitSet(size);
+        names = new String[size];
+        fontNames = new String[size];
+
+        for (int index = 0; index < size; index++) {
+            Event event = events.get(index);
+            startingTimes[index] = event.startingTime;
+            endingTimes[index] = event.endingTime;
+            foregroundRGBs[index] = event.foregroundColor.getRGB();
+            backgroundRGBs[index] = event.backgroundColor.getRGB();
+            spansOfTime.set(index, event.isSpanOfTime);
+            aboveTimelineBar.set(index, event.isAboveTimelineBar);
+            names[index] = event.name;
+            fontNames[index] = event.fontName;
+        }
+    }
+
+
+    // Information Requests
+
+    public int size() { return size; }
+
+    public long getStartingTime(int index) { return startingTimes[index]; }
+
+    public long getEndingTime(int index) { return endingTimes[index]; }
+
+    public int getForegroundRGB(int index) { return foregroundRGBs[index]; }
+
+    public int getBackgroundRGB(int index) { return backgroundRGBs[index]; }
+
+    public boolean isSpanOfTime(int index) { return spansOfTime.get(index); }
+
+    public boolean isAboveTimelineBar(int index) { return aboveTimelineBar.get(index); }
+
+    public String getName(int index) { return names[index]; }
+
+    public String getFontName(int index) { return fontNames[index]; }
+
+    /**
+     * Returns the shared color of the name of the event at the given position.
+     */
+    public Color getForegroundColor(int index) { return EventFlyweights.getColor(foregroundRGBs[index]); }
+
+    /**
+     * Returns the shared color of the body of the event at the given position.
+     */
+    public Color getBackgroundColor(int index) { return EventFlyweights.getColor(backgroundRGBs[index]); }
+
+}
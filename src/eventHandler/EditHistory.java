@@ -0,0 +1,115 @@
+/*
+Redstar Timeline Creator - A tool for easily creating visual timelines of events.
+Copyright (C) 2022 Xavier Mercerweiss
+
+This program is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+Redstar may be contacted for inquiry at: <redstar.software.official@gmail.com>
+ */
+
+package eventHandler;
+
+import java.util.ArrayDeque;
+
+/**
+ * A bounded history of the edits made to a timeline, allowing each to be undone and redone.
+ * As events are immutable, each edit records only references to the event it replaced and the event it produced, sharing both with the timeline itself.
+ * An edit therefore costs a constant amount of memory regardless of the size of the timeline, and is reverted through the handler's ordinary incremental operations.
+ */
+public class EditHistory {
+
+    /**
+     * A single edit, replacing whichever event bore a name with another event of that name, where either may be absent.
+     */
+    private static class Edit {
+        final String eventName;
+        final Event previousEvent;
+        final Event resultingEvent;
+
+        Edit(String eventName, Event previousEvent, Event resultingEvent) {
+            this.eventName = eventName;
+            this.previousEvent = previousEvent;
+            this.resultingEvent = resultingEvent;
+        }
+    }
+
+    private final ArrayDeque<Edit> undoableEdits = new ArrayDeque<>();
+    private final ArrayDeque<Edit> redoableEdits = new ArrayDeque<>();
+
+    private final int MAXIMUM_EDITS = 1000;
+
+
+    // Public Methods
+
+    /**
+     * Records an edit, discarding every edit which had been undone and the oldest edit if the history is full.
+     * @param eventName The name of the edited event.
+     * @param previousEvent The event bearing the name before the edit, or null if there was none.
+     * @param resultingEvent The event bearing the name after the edit, or null if there is none.
+     */
+    public void record(String eventName, Event previousEvent, Event resultingEvent) {
+        if (previousEvent == resultingEvent) { return; }
+        undoableEdits.push(new Edit(eventName, previousEvent, resultingEvent));
+        if (undoableEdits.size() > MAXIMUM_EDITS) { undoableEdits.removeLast(); }
+        redoableEdits.clear();
+    }
+
+    /**
+     * Reverts the most recent edit which has not been undone.
+     * @param handler The handler of the edited timeline.
+     * @return Whether there was an edit to undo.
+     */
+    public boolean undo(EventHandler handler) {
+        Edit edit = undoableEdits.poll();
+        if (edit == null) { return false; }
+        handler.restoreEvent(edit.eventName, edit.previousEvent);
+        redoableEdits.push(edit);
+        return true;
+    }
+
+    /**
+     * Reapplies the most recently undone edit.
+     * @param handler The handler of the edited timeline.
+     * @return Whether there was an edit to redo.
+     */
+    public boolean redo(EventHandler handler) {
+        Edit edit = redoableEdits.poll();
+        if (edit == null) { return false; }
+        handler.restoreEvent(edit.eventName, edit.resultingEvent);
+        undoableEdits.push(edit);
+        return true;
+    }
+
+    /**
+     * Forgets every edit, such as when a different timeline is loaded.
+     */
+    public void clear() {
+        undoableEdits.clear();
+        redoableEdits.clear();
+    }
+
+
+    // Information Requests
+
+    /**
+     * Returns whether there is an edit which can be undone.
+     */
+    public boolean canUndo() { return !undoableEdits.isEmpty(); }
+
+    /**
+     * Returns whether there is an undone edit which can be redone.
+     */
+    public boolean canRedo() { return !redoableEdits.isEmpty(); }
+
+}
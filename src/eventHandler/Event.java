@@ -30,12 +30,15 @@ import java.util.Date;
  */
 public class Event implements Comparable<Event> {
 
-    private final SimpleDateFormat formatter;
-
     public final String name;
     public final boolean isSpanOfTime;
-    public final Date startingTime;
-    public final Date endingTime;
+    public final long startingTime;
+    public final long endingTime;
+    /*
+    Times are stored as milliseconds since the epoch so that sorting and
+    layout operate on primitives. The ending time of a single event is
+    equal to its starting time.
+    */
     public final String datetimeFormat;
     public final String fontName;
     public final Color foregroundColor;
@@ -45,6 +48,7 @@ public class Event implements Comparable<Event> {
 
     /**
      * Constructs an event of the given specifications. Produces a single event if the "endingTime" param is left as null, and produces a span of time otherwise.
+     * The font name and colors are replaced with their shared instances, so that events of a common appearance do not duplicate them.
      * @param name The name of the event.
      * @param startingTime The time at which the event begins or occurs.
      * @param endingTime The time at which the event ends.
@@ -56,25 +60,45 @@ public class Event implements Comparable<Event> {
      */
     public Event(String name, Date startingTime, Date endingTime, String datetimeFormat,String fontName,
                  Color foregroundColor, Color backgroundColor, boolean isAboveTimelineBar) {
+        this(name, startingTime.getTime(), (endingTime != null) ? endingTime.getTime() : startingTime.getTime(),
+                endingTime != null, datetimeFormat, fontName, foregroundColor, backgroundColor, isAboveTimelineBar);
+    }
+
+    /**
+     * Constructs an event of the given specifications from times in milliseconds since the epoch.
+     * @param name The name of the event.
+     * @param startingTime The time at which the event begins or occurs, in milliseconds since the epoch.
+     * @param endingTime The time at which the event ends, in milliseconds since the epoch. Ignored unless the event is a span of time.
+     * @param isSpanOfTime Whether the event is a span of time rather than a single event.
+     * @param datetimeFormat The format with which the time(s) of the event will be displayed.
+     * @param fontName The font with which the event's name is written on the timeline image.
+     * @param foregroundColor The color of the event's name on the timeline image.
+     * @param backgroundColor The color of the event on the timeline image.
+     * @param isAboveTimelineBar Whether the event is to be drawn above or below the "bar" splitting the timeline image in two.
+     */
+    public Event(String name, long startingTime, long endingTime, boolean isSpanOfTime, String datetimeFormat, String fontName,
+                 Color foregroundColor, Color backgroundColor, boolean isAboveTimelineBar) {
         this.name = name;
         this.startingTime = startingTime;
-        this.endingTime = endingTime;
-        this.fontName = fontName;
+        this.endingTime = isSpanOfTime ? endingTime : startingTime;
+        this.fontName = EventFlyweights.internFontName(fontName);
         this.datetimeFormat = datetimeFormat;
-        this.formatter = new SimpleDateFormat(datetimeFormat);
-        this.isSpanOfTime = (endingTime != null);
-        this.foregroundColor = foregroundColor;
-        this.backgroundColor = backgroundColor;
+        this.isSpanOfTime = isSpanOfTime;
+        this.foregroundColor = EventFlyweights.getColor(foregroundColor);
+        this.backgroundColor = EventFlyweights.getColor(backgroundColor);
         this.isAboveTimelineBar = isAboveTimelineBar;
     }
 
     @Override
-    public int compareTo(Event comparedEvent) { return this.startingTime.compareTo(comparedEvent.startingTime); }
+    public int compareTo(Event comparedEvent) { return Long.compare(this.startingTime, comparedEvent.startingTime); }
 
     @Override
     public String toString() {
-        String output = String.format("%s: %s", name, formatter.format(startingTime));
-        if (isSpanOfTime) { output += " - " + formatter.format(endingTime); }
-        return output;
+        SimpleDateFormat formatter = EventFlyweights.getFormatter(datetimeFormat);
+        synchronized (formatter) {
+            String output = String.format("%s: %s", name, formatter.format(new Date(startingTime)));
+            if (isSpanOfTime) { output += " - " + formatter.format(new Date(endingTime)); }
+            return output;
+        }
     }
 }
@@ -0,0 +1,112 @@
+/*
+Redstar Timeline Creator - A tool for easily creating visual timelines of events.
+Copyright (C) 2022 Xavier Mercerweiss
+
+This program is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+Redstar may be contacted for inquiry at: <redstar.software.official@gmail.com>
+ */
+
+package eventHandler;
+
+import java.awt.*;
+import java.text.SimpleDateFormat;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * A set of shared, interned instances of the immutable state common to many events, so that each event need only store its own data.
+ * Each cache is a concurrent map which looking up an instance never writes to, so that events may be created by many parsing threads at once without contending.
+ * Once full, a cache is emptied before caching its next entry, so that a timeline of many distinct colors or fonts does not pin them for the life of the application.
+ * An evicted instance remains valid for the events holding it; later events are simply given a new shared instance.
+ */
+public final class EventFlyweights {
+
+    private static final int MAXIMUM_CACHED_FORMATTERS = 16;
+    private static final int MAXIMUM_CACHED_COLORS = 4096;
+    private static final int MAXIMUM_CACHED_FONT_NAMES = 1024;
+
+    private static final ConcurrentHashMap<String, SimpleDateFormat> formatters = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<Integer, Color> colors = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, String> fontNames = new ConcurrentHashMap<>();
+
+    private EventFlyweights() {}
+
+    /**
+     * Returns the shared formatter of the given datetime format. SimpleDateFormat is not thread-safe, so callers must synchronize on the returned formatter.
+     * @param datetimeFormat The requested datetime format.
+     * @return The single formatter of the given format.
+     */
+    public static SimpleDateFormat getFormatter(String datetimeFormat) {
+        return getShared(formatters, MAXIMUM_CACHED_FORMATTERS, datetimeFormat, SimpleDateFormat::new);
+    }
+
+    /**
+     * Returns the shared opaque color of the given RGB values.
+     * @param r The red value of the color.
+     * @param g The green value of the color.
+     * @param b The blue value of the color.
+     * @return The single color of the given RGB values.
+     * @throws IllegalArgumentException If any value lies outside the range 0 to 255, an IllegalArgumentException is thrown.
+     */
+    public static Color getColor(int r, int g, int b) {
+        if (((r | g | b) & ~0xFF) != 0) { throw new IllegalArgumentException("Color parameter outside of expected range."); }
+        return getColor(0xFF000000 | (r << 16) | (g << 8) | b);
+    }
+
+    /**
+     * Returns the shared color of the given ARGB value.
+     * @param argb The alpha, red, green and blue values of the color packed into a single int.
+     * @return The single color of the given ARGB value.
+     */
+    public static Color getColor(int argb) { return getShared(colors, MAXIMUM_CACHED_COLORS, argb, value -> new Color(value, true)); }
+
+    /**
+     * Returns the shared color equal to the given color.
+     * @param color The given color. May be null.
+     * @return The single color equal to the given color. Null if the given color is null.
+     */
+    public static Color getColor(Color color) {
+        if (color == null) { return null; }
+        return getColor(color.getRGB());
+    }
+
+    /**
+     * Returns the shared instance of the given font name.
+     * @param fontName The given font name. May be null.
+     * @return The single string equal to the given font name. Null if the given font name is null.
+     */
+    public static String internFontName(String fontName) {
+        if (fontName == null) { return null; }
+        return getShared(fontNames, MAXIMUM_CACHED_FONT_NAMES, fontName, Function.identity());
+    }
+
+
+    // Cache Methods
+
+    /**
+     * Returns the cached instance of the given key, creating and caching it if absent.
+     * A cache holding the given number of entries is first emptied, which costs no more per entry than caching it. Threads caching new entries at the same moment may briefly exceed the limit by one entry each.
+     * Should two threads create an instance of the same key at once, both are given whichever was cached first.
+     */
+    private static <K, V> V getShared(ConcurrentHashMap<K, V> cache, int maximumSize, K key, Function<? super K, ? extends V> factory) {
+        V sharedInstance = cache.get(key);
+        if (sharedInstance != null) { return sharedInstance; }
+
+        if (cache.size() >= maximumSize) { cache.clear(); }
+        V createdInstance = factory.apply(key);
+        sharedInstance = cache.putIfAbsent(key, createdInstance);
+        return (sharedInstance != null) ? sharedInstance : createdInstance;
+    }
+}
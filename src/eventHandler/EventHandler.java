@@ -25,9 +25,15 @@ import gui.GUI;
 import javax.swing.*;
 import java.awt.*;
 import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * An object which stores and manipulates all events on the timeline, and by extension the timeline itself. Directly interacts with the GUI and ImageProcessor.
@@ -36,17 +42,48 @@ public class EventHandler {
 
     private GUI gui;
 
-    private final SimpleDateFormat formatter;
-    private final ArrayList<Event> events;
-    private final HashSet<String> eventNames;
-
-    private Date earliestTime;
-    private Date latestTime;
+    private final TreeSet<Event> events;
+    private final ConcurrentHashMap<String, Event> eventsByName;
+    private final TreeMap<Long, Integer> endingTimes;
+    private final ReentrantLock lock;
+    private final ConcurrentLinkedQueue<Event> pendingEvents;
+    private final EditHistory history;
+    private final TimelineChangeNotifier changeNotifier;
+
+    private volatile long earliestTime;
+    private volatile long latestTime;
+    private volatile long version;
+    private volatile EventSnapshot snapshot;
+    private TimelineJournal journal;
+    private String journalledFile;
     private String currentFile;
-    public boolean isTimelineSaved = true;
+    private volatile boolean isTimelineSaved = true;
+    private final AtomicLong changeCount = new AtomicLong();
+    private final AtomicBoolean isDrainScheduled = new AtomicBoolean();
+    private final ExecutorService drainer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Timeline submitter");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ExecutorService saver = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Timeline saver");
+        thread.setDaemon(true);
+        return thread;
+    });
     private final String datetimeFormat;
 
     private final String TIMELINE_FILE_EXTENSION = "tmln";
+    private final String BINARY_TIMELINE_FILE_EXTENSION = "tmlb";
+    private final long PARALLEL_LOAD_THRESHOLD_IN_BYTES = 4L * 1024 * 1024;
+    private final long MAPPED_LOAD_THRESHOLD_IN_BYTES = 64L * 1024 * 1024;
+    private final String TEMPORARY_FILE_SUFFIX = ".saving";
+
+    private static final Comparator<Event> CHRONOLOGICAL_ORDER = Comparator.<Event>naturalOrder().thenComparing(event -> event.name);
+    // Events sharing a starting time are ordered by name, as names are unique and the TreeSet would otherwise treat such events as duplicates.
+
+    // Every change to the events takes the lock, so that replacing an event by name is atomic across the ordered set, the name map and the ending times.
+    // Readers either look up events by name in the concurrent map or hold an immutable snapshot, neither of which blocks writers.
+    // A snapshot is copied under the lock once per version and then shared, so writers wait for at most one linear copy per change.
 
 
     // Initialization Methods
@@ -61,10 +98,14 @@ public class EventHandler {
      * @param datetimeFormat The datetime format with which the times of all events will be presented.
      */
     public EventHandler(String datetimeFormat){
-        this.events = new ArrayList<>();
-        this.eventNames = new HashSet<>();
+        this.events = new TreeSet<>(CHRONOLOGICAL_ORDER);
+        this.eventsByName = new ConcurrentHashMap<>();
+        this.endingTimes = new TreeMap<>();
+        this.lock = new ReentrantLock();
+        this.pendingEvents = new ConcurrentLinkedQueue<>();
+        this.history = new EditHistory();
+        this.changeNotifier = new TimelineChangeNotifier(this::takeChanges);
         this.datetimeFormat = datetimeFormat;
-        formatter = new SimpleDateFormat(datetimeFormat);
     }
 
 
@@ -99,13 +140,19 @@ public class EventHandler {
      * @param eventName The name of the event to be removed.
      */
     public void remove(String eventName) {
-        if (eventNames.contains(eventName)) {
-            Event event = get(eventName);
-            events.remove(event);
-            eventNames.remove(eventName);
-            updateTimeBoundaries();
-            isTimelineSaved = false;
+        lock.lock();
+        try {
+            Event event = eventsByName.remove(eventName);
+            if (event != null) {
+                events.remove(event);
+                removeEndingTime(event.endingTime);
+                onEventsChanged();
+                markUnsavedChanges();
+                if (journal != null) { journal.recordRemoval(eventName); }
+                changeNotifier.eventChanged(eventName, event, null);
+            }
         }
+        finally { lock.unlock(); }
     }
 
     /**
@@ -113,13 +160,7 @@ public class EventHandler {
      * @param eventName The name of the requested event.
      * @return The event bearing the requested name. Null if no such event exist.
      */
-    public Event get(String eventName) {
-        if (eventNames.contains(eventName)) {
-            int index = getIndexOfEvent(eventName);
-            return events.get(index);
-        }
-        return null;
-    }
+    public Event get(String eventName) { return eventsByName.get(eventName); }
 
     /**
      * Completely resets the handler, as though it were reinitialized.
@@ -127,9 +168,9 @@ public class EventHandler {
     public void reset() {
         boolean performOperation = gui.canOperationProceedDespiteUnsavedChanges();
         if (performOperation) {
+            closeJournal();
             clear();
             gui.resetTimelineDetails();
-            gui.updateTimelinePanels();
             currentFile = null;
             isTimelineSaved = true;
         }
@@ -137,11 +178,20 @@ public class EventHandler {
 
     /**
      * Deletes all events managed by the handler, therefore wiping the associated timeline.
+     * Events submitted through submit() but not yet added are discarded along with the timeline, as they were meant for the timeline being wiped, such as when another file is loaded.
      */
     public void clear() {
-        events.clear();
-        eventNames.clear();
-        updateTimeBoundaries();
+        lock.lock();
+        try {
+            pendingEvents.clear();
+            history.clear();
+            events.clear();
+            eventsByName.clear();
+            endingTimes.clear();
+            onEventsChanged();
+            changeNotifier.bulkChanged();
+        }
+        finally { lock.unlock(); }
     }
 
     /**
@@ -149,156 +199,400 @@ public class EventHandler {
      * @param event The event to be added to the timeline.
      */
     public void addEventToTimeline(Event event) {
-        String name = event.name;
-
-        if (eventNames.contains(name)) {
-            int index = getIndexOfEvent(name);
-            events.set(index, event);
-        } else {
+        lock.lock();
+        try {
+            Event replacedEvent = eventsByName.put(event.name, event);
+            if (replacedEvent != null) {
+                events.remove(replacedEvent);
+                removeEndingTime(replacedEvent.endingTime);
+            }
             events.add(event);
-            eventNames.add(name);
+            addEndingTime(event.endingTime);
+            onEventsChanged();
+            markUnsavedChanges();
+            if (journal != null) { journal.recordAddition(event); }
+            changeNotifier.eventChanged(event.name, replacedEvent, event);
         }
-        Collections.sort(events);
-        updateTimeBoundaries();
-        isTimelineSaved = false;
+        finally { lock.unlock(); }
     }
 
     /**
-     * Returns the index of an event bearing a specified name on the timeline.
-     * @param eventName The name of the requested event.
-     * @return The position of the specified event within the 'events' ArrayList.
+     * Adds a listener to be notified of every subsequent change to the timeline, coalesced to at most one notification per frame.
+     * @param listener The listener to be added.
      */
-    private int getIndexOfEvent(String eventName) {
-        for (int index = 0; index < events.size(); index++) {
-            if (events.get(index).name.equals(eventName)) { return index; }
-        }
-        throw new NullPointerException();
+    public void addChangeListener(TimelineChangeListener listener) { changeNotifier.addListener(listener); }
+
+    /**
+     * Removes a listener from those notified of changes to the timeline.
+     * @param listener The listener to be removed.
+     */
+    public void removeChangeListener(TimelineChangeListener listener) { changeNotifier.removeListener(listener); }
+
+    /**
+     * Notifies each change listener that the title, title font or colors of the timeline have changed.
+     */
+    public void notifyStyleChanged() { changeNotifier.styleChanged(); }
+
+    /**
+     * Takes the changes recorded since they were last published, together with the snapshot of the timeline they lead to. Called by the change notifier on the event dispatch thread.
+     * The changes and the snapshot are taken under the lock together, so that no change may fall between them.
+     * @return The changes, paired with the snapshot of the timeline following them.
+     */
+    private TimelineDelta takeChanges() {
+        lock.lock();
+        try { return changeNotifier.takeDelta(getSnapshot()); }
+        finally { lock.unlock(); }
     }
 
     /**
-     * Updates the 'earliestTime' and 'latestTime' attributes of the handler to reflect the current timeline.
+     * Records an edit made to the event of the given name so that it may be undone. Must be called after the edit is made.
+     * Only edits recorded through this method can be undone, so changes made by loading a file, replaying a journal or submitting events from other threads are excluded.
+     * @param eventName The name of the edited event.
+     * @param previousEvent The event bearing the name before the edit, or null if there was none.
      */
-    private void updateTimeBoundaries() {
-        Collections.sort(events);
-        try {
-            Event earliestEvent = events.get(0);
-            earliestTime = earliestEvent.startingTime;
+    public void recordEdit(String eventName, Event previousEvent) {
+        lock.lock();
+        try { history.record(eventName, previousEvent, eventsByName.get(eventName)); }
+        finally { lock.unlock(); }
+    }
+
+    /**
+     * Reverts the most recent recorded edit which has not been undone.
+     * @return Whether there was an edit to undo.
+     */
+    public boolean undo() {
+        lock.lock();
+        try { return history.undo(this); }
+        finally { lock.unlock(); }
+    }
+
+    /**
+     * Reapplies the most recently undone edit.
+     * @return Whether there was an edit to redo.
+     */
+    public boolean redo() {
+        lock.lock();
+        try { return history.redo(this); }
+        finally { lock.unlock(); }
+    }
+
+    /**
+     * Returns whether there is a recorded edit which can be undone.
+     */
+    public boolean canUndo() {
+        lock.lock();
+        try { return history.canUndo(); }
+        finally { lock.unlock(); }
+    }
 
-            latestTime = earliestTime;
-            for (Event event:events) {
-                if (event.isSpanOfTime && event.endingTime.compareTo(latestTime) > 0) { latestTime = event.endingTime; }
-                else if (event.startingTime.compareTo(latestTime) > 0) { latestTime = event.startingTime; }
+    /**
+     * Returns whether there is an undone edit which can be redone.
+     */
+    public boolean canRedo() {
+        lock.lock();
+        try { return history.canRedo(); }
+        finally { lock.unlock(); }
+    }
+
+    /**
+     * Makes the given event the one bearing the given name, removing the event of that name if none is given. Used to revert and reapply edits.
+     * @param eventName The name of the event.
+     * @param event The event to bear the name, or null if no event is to bear it.
+     */
+    void restoreEvent(String eventName, Event event) {
+        if (event == null) { remove(eventName); }
+        else { addEventToTimeline(event); }
+    }
+
+    /**
+     * Adds a batch of events to the timeline at once, ordering the timeline and updating its time boundaries a single time rather than once per event.
+     * Events sharing a name with an existing event, or with an event earlier in the batch, replace that event.
+     * @param batch The events to be added to the timeline.
+     */
+    public void addAll(Collection<Event> batch) {
+        LinkedHashMap<String, Event> batchByName = new LinkedHashMap<>();
+        for (Event event:batch) { batchByName.put(event.name, event); }
+
+        lock.lock();
+        try {
+            ArrayList<Event> replacedEvents = new ArrayList<>(batchByName.size());
+            for (Event event:batchByName.values()) {
+                Event replacedEvent = eventsByName.put(event.name, event);
+                if (replacedEvent != null) {
+                    events.remove(replacedEvent);
+                    removeEndingTime(replacedEvent.endingTime);
+                }
+                addEndingTime(event.endingTime);
+                replacedEvents.add(replacedEvent);
+            }
+            events.addAll(batchByName.values());
+            onEventsChanged();
+            markUnsavedChanges();
+            if (journal != null) {
+                for (Event event:batchByName.values()) { journal.recordAddition(event); }
             }
-        } catch (IndexOutOfBoundsException e) {
-            earliestTime = null;
-            latestTime = null;
+            int index = 0;
+            for (Event event:batchByName.values()) { changeNotifier.eventChanged(event.name, replacedEvents.get(index++), event); }
         }
+        finally { lock.unlock(); }
     }
 
+    /**
+     * Submits an event to be added to the timeline from any thread without waiting for other writers.
+     * The event is queued, and a submitting thread which finds the handler free adds every queued event as a single batch. One which finds it busy leaves the queue to the
+     * handler's submitting thread, which waits for the lock without spinning and then adds the queue as a batch, so producers never block on one another or on readers.
+     * Events sharing a name replace one another in the order they were queued. Events still queued when the timeline is cleared are discarded along with it.
+     * Submitted events are not recorded in the edit history, and so cannot be undone.
+     * @param event The event to be added to the timeline.
+     */
+    public void submit(Event event) {
+        pendingEvents.add(event);
+        if (lock.tryLock()) {
+            try { addPendingEvents(); }
+            finally { lock.unlock(); }
+        }
+        else { scheduleDrain(); }
+    }
+
+    /**
+     * Waits for the handler to be free and adds every event still queued by submit() to the timeline.
+     */
+    public void flushPendingEvents() {
+        lock.lock();
+        try { addPendingEvents(); }
+        finally { lock.unlock(); }
+    }
+
+    /**
+     * Has the handler's submitting thread add the queued events once the lock is free, unless it is already due to.
+     * The flag is cleared before the queue is drained, so an event queued after the drain has begun schedules a drain of its own.
+     */
+    private void scheduleDrain() {
+        if (isDrainScheduled.compareAndSet(false, true)) {
+            drainer.execute(() -> {
+                isDrainScheduled.set(false);
+                flushPendingEvents();
+            });
+        }
+    }
+
+    /**
+     * Waits for every drain of the queue which has been scheduled so far to be completed.
+     */
+    void awaitPendingSubmissions() {
+        try { drainer.submit(() -> {}).get(); }
+        catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+        catch (ExecutionException e) { e.printStackTrace(); }
+    }
+
+    /**
+     * Drains the queue of submitted events into the timeline. Must be called while holding the lock.
+     */
+    private void addPendingEvents() {
+        ArrayList<Event> batch = new ArrayList<>();
+        Event event;
+        while ((event = pendingEvents.poll()) != null) { batch.add(event); }
+        if (!batch.isEmpty()) { addAll(batch); }
+    }
+
+    /**
+     * Updates the state derived from the set of events after any change to the timeline.
+     */
+    private void onEventsChanged() {
+        updateTimeBoundaries();
+        version++;
+        snapshot = null;
+    }
+
+    /**
+     * Records that the timeline has changed since it was last saved. Saves already in progress will not mark the timeline as saved upon completion.
+     */
+    private void markUnsavedChanges() {
+        changeCount.incrementAndGet();
+        isTimelineSaved = false;
+    }
+
+    /**
+     * Updates the 'earliestTime' and 'latestTime' attributes of the handler to reflect the current timeline.
+     * Both are read from ordered structures in O(log n), so no pass over the events is needed: the set of events is itself ordered by starting time, and the ending times are kept in an ordered multiset.
+     */
+    private void updateTimeBoundaries() {
+        earliestTime = events.isEmpty() ? 0 : events.first().startingTime;
+        latestTime = endingTimes.isEmpty() ? 0 : endingTimes.lastKey();
+    }
+
+    /**
+     * Adds an ending time to the ordered multiset of ending times, which maps each ending time to the number of events ending at it. Must be called while holding the lock.
+     * @param endingTime The ending time of an event added to the timeline.
+     */
+    private void addEndingTime(long endingTime) { endingTimes.merge(endingTime, 1, Integer::sum); }
+
+    /**
+     * Removes a single occurrence of an ending time from the ordered multiset of ending times, so that the latest ending time falls back to the next only once no event ends at it. Must be called while holding the lock.
+     * @param endingTime The ending time of an event removed from the timeline.
+     */
+    private void removeEndingTime(long endingTime) { endingTimes.computeIfPresent(endingTime, (time, count) -> (count == 1) ? null : count - 1); }
+
 
     // Save timeline to file
 
     /**
-     * Saves the current timeline to a TIMELINE file.
+     * Saves the current timeline to a TIMELINE file, in the binary format if the file bears the binary TIMELINE file extension and in the text format otherwise.
+     * The file is written in the background from a snapshot of the timeline, so that the timeline may continue to be edited while the save is in progress.
      * @param promptFileName Whether the name of the destination file is to be prompted from the user regardless of external factors.
      */
     public void saveToFile(boolean promptFileName) {
         if (currentFile == null || promptFileName) { pickDestinationFile(); }
         if (currentFile != null) {
-            try {
-                BufferedWriter writer = new BufferedWriter(new FileWriter(currentFile));
-                writeFileHeader(writer);
-                writeFileEvents(writer);
-                writer.close();
-                isTimelineSaved = true;
+            save(currentFile, gui.getTimelineTitle(), gui.getTimelineTileFontName(),
+                    gui.getTimelineForegroundColor(), gui.getTimelineBackgroundColor());
+        }
+    }
+
+    /**
+     * Saves the current timeline to the given TIMELINE file in the background, along with the given header.
+     * @param destinationFile The path to the destination file.
+     * @param timelineTitle The title of the timeline.
+     * @param titleFont The name of the font of the timeline's title.
+     * @param foregroundColor The foreground color of the timeline.
+     * @param backgroundColor The background color of the timeline.
+     */
+    void save(String destinationFile, String timelineTitle, String titleFont, Color foregroundColor, Color backgroundColor) {
+        long savedChangeCount = changeCount.get();
+        EventSnapshot savedSnapshot;
+        TimelineJournal previousJournal;
+        TimelineJournal savedJournal;
+        long savedJournalSequence;
+        boolean isNewJournal;
+
+        lock.lock();
+        try {
+            // A new journal is only constructed here, and its file is created on the saving thread, so the lock is never held while waiting on the disk.
+            previousJournal = journal;
+            isNewJournal = (journal == null || journal.isClosed() || !destinationFile.equals(journalledFile));
+            if (isNewJournal) { setJournal(new TimelineJournal(destinationFile, datetimeFormat), destinationFile); }
+            savedSnapshot = getSnapshot();
+            savedJournal = journal;
+            savedJournalSequence = journal.getLastSequence();
+        }
+        finally { lock.unlock(); }
+
+        saver.execute(() -> {
+            if (isNewJournal) { startNewJournal(previousJournal, savedJournal); }
+            saveInBackground(destinationFile, savedChangeCount, savedSnapshot, savedJournal, savedJournalSequence,
+                    timelineTitle, titleFont, foregroundColor, backgroundColor);
+        });
+    }
+
+    /**
+     * Waits for every save in progress, and every journal being closed or discarded, to be completed. Must be called before exiting, as these are otherwise abandoned.
+     */
+    public void awaitPendingSaves() {
+        try { saver.submit(() -> {}).get(); }
+        catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+        catch (ExecutionException e) { e.printStackTrace(); }
+    }
+
+    /**
+     * Writes a timeline to a temporary file beside the destination file, forces it to the disk and then renames it over the destination file.
+     * The destination file is therefore either left untouched or entirely replaced, even if the application is interrupted mid-save.
+     * Upon completion, compacts the journal of the destination file down to the changes made since the snapshot, and marks the timeline as saved unless it has been changed since the save began.
+     * @param destinationFile The path to the destination file.
+     * @param savedChangeCount The number of changes made to the timeline when the save began.
+     * @param savedSnapshot The snapshot of the timeline to be written.
+     * @param savedJournal The journal of the destination file.
+     * @param savedJournalSequence The sequence number of the journal's most recent record when the snapshot was taken.
+     */
+    private void saveInBackground(String destinationFile, long savedChangeCount, EventSnapshot savedSnapshot, TimelineJournal savedJournal,
+                                  long savedJournalSequence, String timelineTitle, String titleFont, Color foregroundColor, Color backgroundColor) {
+        List<Event> events = savedSnapshot.getEvents();
+        Path destination = Paths.get(destinationFile);
+        Path temporaryFile = Paths.get(destinationFile + TEMPORARY_FILE_SUFFIX);
+        try {
+            if (isBinaryTimelineFile(destinationFile)) {
+                try (BinaryTimelineFileWriter writer = new BinaryTimelineFileWriter(temporaryFile.toString())) {
+                    writer.writeTimeline(timelineTitle, titleFont, foregroundColor, backgroundColor, events);
+                }
+            } else {
+                try (TimelineFileWriter writer = new TimelineFileWriter(temporaryFile.toString(), datetimeFormat)) {
+                    writer.writeTimeline(timelineTitle, titleFont, foregroundColor, backgroundColor, events);
+                }
             }
-            catch (IOException e) { gui.showErrorMessage("Invalid destination file."); }
+            try (FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.WRITE)) { channel.force(true); }
+            replaceFile(temporaryFile, destination);
+            compactJournal(savedJournal, savedJournalSequence);
+
+            SwingUtilities.invokeLater(() -> {
+                if (changeCount.get() == savedChangeCount) { isTimelineSaved = true; }
+            });
+        }
+        catch (IOException e) {
+            try { Files.deleteIfExists(temporaryFile); }
+            catch (IOException ignored) { }
+            SwingUtilities.invokeLater(() -> gui.showErrorMessage("Invalid destination file."));
         }
     }
 
     /**
-     * Prompts the user for a destination file to save the current timeline into.
+     * Removes the changes contained in the timeline file from its journal. A failure leaves those changes in the journal, where replaying them is harmless.
+     * @param savedJournal The journal of the timeline file.
+     * @param savedJournalSequence The sequence number of the journal's most recent record when the timeline written to the timeline file was captured.
      */
-    private void pickDestinationFile() {
-        JFileChooser fileChooser = new JFileChooser();
-        int response = fileChooser.showSaveDialog(null);
-        if (response == JFileChooser.APPROVE_OPTION) { formatFilePath(fileChooser.getSelectedFile().getAbsolutePath()); }
-        else { currentFile = null; }
+    private void compactJournal(TimelineJournal savedJournal, long savedJournalSequence) {
+        if (savedJournal == null) { return; }
+        try { savedJournal.compact(savedJournalSequence); }
+        catch (IOException e) { e.printStackTrace(); }
+    }
+
+    /**
+     * Converts a text TIMELINE file into the binary TIMELINE file format, which is smaller and faster to load, reading its times in the handler's datetime format.
+     * @param sourcePath The path to the text TIMELINE file.
+     * @param destinationPath The path to the binary TIMELINE file to be written.
+     * @throws IOException In the event of an error while reading or writing either file, an IOException is thrown.
+     * @throws ParseException In the event of an error while parsing the source file, a ParseException is thrown.
+     */
+    public void convertToBinaryFile(String sourcePath, String destinationPath) throws IOException, ParseException {
+        BinaryTimelineFileWriter.convertTextToBinary(sourcePath, destinationPath, datetimeFormat);
     }
 
     /**
-     * Writes the timeline header to the destination file.
-     * @param writer The writer used to write to the destination file.
-     * @throws IOException In the event of an error in the writing process, an IOException is thrown.
+     * Renames a file over another, atomically where supported by the file system.
+     * @param source The file to be renamed.
+     * @param destination The file to be replaced.
+     * @throws IOException In the event the file cannot be renamed, an IOException is thrown.
      */
-    private void writeFileHeader(BufferedWriter writer) throws IOException {
-        String timelineTitle = gui.getTimelineTitle();
-        String titleFont = gui.getTimelineTileFontName();
-        Color foregroundColor = gui.getTimelineForegroundColor();
-        Color backgroundColor = gui.getTimelineBackgroundColor();
-        int fgR = foregroundColor.getRed();
-        int fgG = foregroundColor.getGreen();
-        int fgB = foregroundColor.getBlue();
-        int bgR = backgroundColor.getRed();
-        int bgG = backgroundColor.getGreen();
-        int bgB = backgroundColor.getBlue();
-        writer.write(String.format("%s\n%s\n", timelineTitle, titleFont));
-        writer.write(String.format("%d,%d,%d,%d,%d,%d\n", fgR, fgG, fgB, bgR, bgG, bgB));
+    private void replaceFile(Path source, Path destination) throws IOException {
+        try { Files.move(source, destination, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING); }
+        catch (AtomicMoveNotSupportedException e) { Files.move(source, destination, StandardCopyOption.REPLACE_EXISTING); }
     }
 
     /**
-     * Writes the events of the timeline to the destination file.
-     * @param writer The writer used to write to the destination file.
-     * @throws IOException In the event of an error in the writing process, an IOException is thrown.
+     * Prompts the user for a destination file to save the current timeline into.
      */
-    private void writeFileEvents(BufferedWriter writer) throws IOException {
-        for (Event event:events) { writeEventToFile(event, writer); }
+    private void pickDestinationFile() {
+        JFileChooser fileChooser = new JFileChooser();
+        int response = fileChooser.showSaveDialog(null);
+        if (response == JFileChooser.APPROVE_OPTION) { formatFilePath(fileChooser.getSelectedFile().getAbsolutePath()); }
+        else { currentFile = null; }
     }
 
     /**
-     * Formats the name of a given destination file into the TIMELINE file format.
+     * Formats the name of a given destination file into the TIMELINE file format. Files already bearing the binary TIMELINE file extension are left unchanged.
      * @param filePath The path to the destination file.
      */
     private void formatFilePath(String filePath) {
         String extension = getFileExtension(filePath);
-        if (!extension.equals(TIMELINE_FILE_EXTENSION)) { filePath += "." + TIMELINE_FILE_EXTENSION; }
+        boolean isTimelineFile = extension.equals(TIMELINE_FILE_EXTENSION) || extension.equals(BINARY_TIMELINE_FILE_EXTENSION);
+        if (!isTimelineFile) { filePath += "." + TIMELINE_FILE_EXTENSION; }
         currentFile = filePath;
     }
 
     /**
-     * Writes the details of a given event to a single line in the destination file.
-     * @param event The event to be written.
-     * @param writer The writer used to write to the destination file.
-     * @throws IOException In the event of an error in the writing process, an IOException is thrown.
-     */
-    private void writeEventToFile(Event event, BufferedWriter writer) throws IOException {
-
-        String startingTime = formatter.format(event.startingTime);
-        int foregroundRed = event.foregroundColor.getRed();
-        int foregroundGreen = event.foregroundColor.getGreen();
-        int foregroundBlue = event.foregroundColor.getBlue();
-        int backgroundRed = event.backgroundColor.getRed();
-        int backgroundGreen = event.backgroundColor.getGreen();
-        int backgroundBlue = event.backgroundColor.getBlue();
-        int isAboveTimelineBar = event.isAboveTimelineBar ? 1 : 0;
-
-        String eventLine;
-        if (event.isSpanOfTime) {
-            String endingTime = formatter.format(event.endingTime);
-            eventLine = String.format("%s,%d,%d,%s,%d,%d,%d,%d,%d,%d,%s,%s\n",
-                    event.name,1,isAboveTimelineBar,event.fontName,
-                    foregroundRed,foregroundGreen,foregroundBlue,
-                    backgroundRed,backgroundGreen,backgroundBlue,
-                    startingTime,endingTime);
-        } else {
-            eventLine = String.format("%s,%d,%d,%s,%d,%d,%d,%d,%d,%d,%s\n",
-                    event.name,0,isAboveTimelineBar,event.fontName,
-                    foregroundRed,foregroundGreen,foregroundBlue,
-                    backgroundRed,backgroundGreen,backgroundBlue,
-                    startingTime);
-        }
-        writer.write(eventLine);
-    }
+     * Determines whether a given file is of the binary TIMELINE file format.
+     * @param filePath The path to the given file.
+     * @return Whether the file bears the binary TIMELINE file extension.
+     */
+    private boolean isBinaryTimelineFile(String filePath) { return getFileExtension(filePath).equals(BINARY_TIMELINE_FILE_EXTENSION); }
 
     /**
      * Returns file extension of a given file.
@@ -351,17 +645,29 @@ public class EventHandler {
      * Loads the contents of the current source file.
      */
     private void loadFromFile() {
-        try {
-            clear();
-            ArrayList<String> lines = readCurrentFileIntoList();
-            readFileHeader(lines);
-            readFileEvents(lines);
-            gui.updateTimelinePanels();
-            isTimelineSaved = true;
-        }
+        try { load(currentFile); }
         catch (Exception e) { showInvalidSourceFileError(e); }
     }
 
+    /**
+     * Replaces the timeline with the contents of the given TIMELINE file, followed by any changes recorded in its journal.
+     * The header of the file is applied to the GUI, if the handler has one.
+     * @param filePath The path to the source file.
+     * @throws IOException In the event of an error while reading the source file, an IOException is thrown.
+     * @throws ParseException In the event of an error while parsing the source file, a ParseException is thrown.
+     */
+    void load(String filePath) throws IOException, ParseException {
+        closeJournal();
+        awaitPendingSaves();
+        clear();
+        currentFile = filePath;
+        if (isBinaryTimelineFile(currentFile)) { loadFromBinaryFile(); }
+        else if (isMappedLoadWorthwhile()) { loadFromMappedFile(); }
+        else { loadFromTextFile(); }
+        int replayedChanges = replayJournal();
+        isTimelineSaved = (replayedChanges == 0);
+    }
+
     /**
      * Prompts the user for a source file to load the contents of.
      * @throws IOException In the event of an error while reading the source file, an IOException is thrown.
@@ -377,60 +683,100 @@ public class EventHandler {
     }
 
     /**
-     * Creates and returns an ArrayList containing the full contents of the current source file, broken up by line.
-     * @return An ArrayList containing each line of the current source file as a contiguous string.
+     * Loads the contents of the current source file by reading it as text, one line at a time.
      * @throws IOException In the event of an error while reading the source file, an IOException is thrown.
+     * @throws ParseException In the event of an error while parsing the source file, a ParseException is thrown.
      */
-    private ArrayList<String> readCurrentFileIntoList() throws IOException {
-        BufferedReader reader = new BufferedReader(new FileReader(currentFile));
-        ArrayList<String> lines = new ArrayList<>();
-        for (String line = reader.readLine(); line != null; line = reader.readLine()) { lines.add(line); }
-        reader.close();
-        return lines;
+    private void loadFromTextFile() throws IOException, ParseException {
+        try (TimelineFileReader reader = new TimelineFileReader(currentFile, datetimeFormat)) {
+            reader.readHeader();
+            applyFileHeader(reader.getTimelineTitle(), reader.getTitleFont(),
+                    reader.getForegroundColor(), reader.getBackgroundColor());
+            readFileEvents(reader);
+        }
     }
 
     /**
-     * Reads the header of the current source file and applies the appropriate changes to the GUI.
-     * @param lines The contents of the current source file, broken up by line.
+     * Loads the contents of the current source file by memory-mapping it and parsing its bytes directly.
+     * @throws IOException In the event of an error while reading the source file, an IOException is thrown.
+     * @throws ParseException In the event of an error while parsing the source file, a ParseException is thrown.
      */
-    private void readFileHeader(ArrayList<String> lines) throws ParseException {
-        /* Header format:
+    private void loadFromMappedFile() throws IOException, ParseException {
+        try (MappedTimelineFileReader reader = new MappedTimelineFileReader(currentFile, datetimeFormat)) {
+            reader.readHeader();
+            applyFileHeader(reader.getTimelineTitle(), reader.getTitleFont(),
+                    reader.getForegroundColor(), reader.getBackgroundColor());
+            addAll(reader.readEvents(ForkJoinPool.commonPool()));
+        }
+    }
 
-        Timeline title
-        Title font
-        fgR, fgG, fgB, bgR, bgG, bgB
-         */
-        String timelineTitle = lines.get(0);
-        gui.setTimelineTitle(timelineTitle);
+    /**
+     * Loads the contents of the current source file from the binary TIMELINE file format.
+     * @throws IOException In the event of an error while reading the source file, an IOException is thrown.
+     * @throws ParseException In the event of an error while parsing the source file, a ParseException is thrown.
+     */
+    private void loadFromBinaryFile() throws IOException, ParseException {
+        try (BinaryTimelineFileReader reader = new BinaryTimelineFileReader(currentFile, datetimeFormat)) {
+            reader.readHeader();
+            applyFileHeader(reader.getTimelineTitle(), reader.getTitleFont(),
+                    reader.getForegroundColor(), reader.getBackgroundColor());
+            addAll(reader.readEvents());
+        }
+    }
 
-        String titleFont = lines.get(1);
+    /**
+     * Applies the header of the current source file to the GUI, if the handler has one.
+     * @param timelineTitle The title of the timeline.
+     * @param titleFont The name of the font of the timeline's title.
+     * @param foregroundColor The foreground color of the timeline.
+     * @param backgroundColor The background color of the timeline.
+     */
+    private void applyFileHeader(String timelineTitle, String titleFont, Color foregroundColor, Color backgroundColor) {
+        if (gui == null) { return; }
+        gui.setTimelineTitle(timelineTitle);
         gui.setTimelineTileFont(titleFont);
-
-        String colorLine = lines.get(2);
-        String[] parsableColors = colorLine.split(",");
-        Color foregroundColor = toColor(parsableColors[0], parsableColors[1], parsableColors[2]);
-        Color backgroundColor = toColor(parsableColors[3], parsableColors[4], parsableColors[5]);
         gui.setTimelineForegroundColor(foregroundColor);
         gui.setTimelineBackgroundColor(backgroundColor);
     }
 
     /**
-     * Adds the events contained within the current source file to the timeline.
-     * @param lines The contents of the current source file, broken up by line.
+     * Adds the events contained within the current source file to the timeline. Large files are parsed in parallel, while smaller files are read one event at a time.
+     * @param reader The reader which has read the header of the current source file.
+     * @throws IOException In the event of an error while reading the source file, an IOException is thrown.
      * @throws ParseException In the event of an error while parsing each event, a ParseException is thrown.
      */
-    private void readFileEvents(ArrayList<String> lines) throws ParseException {
-        ArrayList<String> eventLines = new ArrayList<>(lines.subList(3, lines.size()));
-        for (String line:eventLines) { addEventFromLine(line); }
+    private void readFileEvents(TimelineFileReader reader) throws IOException, ParseException {
+        ArrayList<Event> fileEvents;
+        if (isParallelLoadWorthwhile()) { fileEvents = reader.readEventsInParallel(ForkJoinPool.commonPool()); }
+        else {
+            fileEvents = new ArrayList<>();
+            for (Event event = reader.readEvent(); event != null; event = reader.readEvent()) { fileEvents.add(event); }
+        }
+        addAll(fileEvents);
     }
 
     /**
-     * Validates that the given file is of the TIMELINE file format.
-     * @throws IOException In the event that the current source file is not of the TIMELINE file format, an IOException is thrown.
+     * Determines whether the current source file is large enough, and the machine has enough cores, for parallel parsing to outweigh its overhead.
+     * @return Whether the current source file is to be parsed in parallel.
+     */
+    private boolean isParallelLoadWorthwhile() {
+        boolean hasMultipleCores = ForkJoinPool.getCommonPoolParallelism() > 1;
+        return hasMultipleCores && new File(currentFile).length() >= PARALLEL_LOAD_THRESHOLD_IN_BYTES;
+    }
+
+    /**
+     * Determines whether the current source file is large enough for memory-mapping to outweigh the cost of establishing the mapping.
+     * @return Whether the current source file is to be memory-mapped.
+     */
+    private boolean isMappedLoadWorthwhile() { return new File(currentFile).length() >= MAPPED_LOAD_THRESHOLD_IN_BYTES; }
+
+    /**
+     * Validates that the given file is of the text or binary TIMELINE file format.
+     * @throws IOException In the event that the current source file is not of either TIMELINE file format, an IOException is thrown.
      */
     private void validateTimelineFileExtension(String filePath) throws IOException {
         String extension = getFileExtension(filePath);
-        if (!extension.equals(TIMELINE_FILE_EXTENSION)) { throw new IOException(); }
+        if (!extension.equals(TIMELINE_FILE_EXTENSION) && !extension.equals(BINARY_TIMELINE_FILE_EXTENSION)) { throw new IOException(); }
     }
 
     /**
@@ -444,53 +790,150 @@ public class EventHandler {
         reset();
     }
 
+
+    // Journal Methods
+
     /**
-     * Parses a given line from the current source file for event details, then adds such an event to the timeline.
-     * @param line The line to be parsed.
-     * @throws ParseException In the event of an error while parsing the event details, a ParseException is thrown.
+     * Opens the journal of the current source file and replays any changes it records which were never folded into the file, such as those of a session which ended unexpectedly.
+     * Further changes are then recorded in the journal. If the journal cannot be opened, changes are simply not journalled.
+     * @return The number of changes replayed.
      */
-    private void addEventFromLine(String line) throws ParseException {
-        String[] parsable = line.split(",");
-        // Line format: eventName,isSpanOfTime(int),isAboveTimelineBar(int),fontName,fgR,fgG,fgB,bgR,bgG,bgB,start,end(if isSpanOfTime == true)
+    private int replayJournal() {
+        TimelineJournal sourceJournal = null;
+        try {
+            sourceJournal = new TimelineJournal(currentFile, datetimeFormat);
+            sourceJournal.open();
+            int replayedChanges = sourceJournal.replay(this);
+            setJournal(sourceJournal, currentFile);
+            return replayedChanges;
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            if (sourceJournal != null) {
+                try { sourceJournal.close(); }
+                catch (IOException ignored) { }
+            }
+            return 0;
+        }
+    }
+
+    /**
+     * Deletes the previous journal and creates the file of the journal which replaced it, abandoning the records of the previous journal. Called from the saving thread, outside the lock.
+     * Called when a timeline is about to be written in full to a file, so that neither the previous journal nor any stale journal of the destination file is replayed later.
+     * Should the new journal not be created, it is closed, and changes are simply not journalled until the next save replaces it.
+     * @param previousJournal The journal which was replaced, or null if there was none.
+     * @param newJournal The journal of the file about to be written.
+     */
+    private void startNewJournal(TimelineJournal previousJournal, TimelineJournal newJournal) {
+        if (previousJournal != null) {
+            try { previousJournal.discard(); }
+            catch (IOException e) { e.printStackTrace(); }
+        }
+        try { newJournal.create(); }
+        catch (IOException e) { e.printStackTrace(); }
+    }
 
-        String name = parsable[0];
-        boolean isSpanOfTime = parsable[1].equals("1");
-        boolean isAboveTimelineBar = parsable[2].equals("1");
-        String fontName = parsable[3];
-        Color foregroundColor = toColor(parsable[4], parsable[5], parsable[6]);
-        Color backgroundColor = toColor(parsable[7], parsable[8], parsable[9]);
-        Date startingTime = formatter.parse(parsable[10]);
-        Date endingTime = null;
-        if (isSpanOfTime) { endingTime = formatter.parse(parsable[11]); }
+    private void setJournal(TimelineJournal journal, String journalledFile) {
+        lock.lock();
+        try {
+            this.journal = journal;
+            this.journalledFile = journalledFile;
+        }
+        finally { lock.unlock(); }
+    }
+
+    /**
+     * Commits and closes the journal on the saving thread, leaving its records to be replayed the next time the timeline file is loaded. Use awaitPendingSaves() to wait for the journal to be closed.
+     */
+    public void closeJournal() {
+        TimelineJournal closedJournal = detachJournal();
+        if (closedJournal == null) { return; }
+        saver.execute(() -> {
+            try { closedJournal.close(); }
+            catch (IOException e) { e.printStackTrace(); }
+        });
+    }
 
-        add(name, startingTime, endingTime, fontName, foregroundColor, backgroundColor, isAboveTimelineBar);
+    /**
+     * Closes and deletes the journal on the saving thread, abandoning every change made since the timeline file was last written. Use awaitPendingSaves() to wait for the journal to be deleted.
+     */
+    public void discardJournal() {
+        TimelineJournal discardedJournal = detachJournal();
+        if (discardedJournal == null) { return; }
+        saver.execute(() -> {
+            try { discardedJournal.discard(); }
+            catch (IOException e) { e.printStackTrace(); }
+        });
     }
 
     /**
-     * Converts 3 strings containing integer values into a Color object.
-     * @param r The red value of the produced color.
-     * @param g The green value of the produced color.
-     * @param b The blue value of the produced color.
-     * @return The produced color.
-     * @throws ParseException In the event an error occurs while producing a color from the specified strings, a ParseException is thrown.
+     * Stops recording changes in the journal, leaving it to be closed or discarded outside the lock.
+     * @return The journal which was recording changes, or null if there was none.
      */
-    private Color toColor(String r, String g, String b) throws ParseException {
+    private TimelineJournal detachJournal() {
+        lock.lock();
         try {
-            int redValue = Integer.parseInt(r);
-            int greenValue = Integer.parseInt(g);
-            int blueValue = Integer.parseInt(b);
-            return new Color(redValue, greenValue, blueValue);
+            TimelineJournal detachedJournal = journal;
+            setJournal(null, null);
+            return detachedJournal;
         }
-        catch (Exception e) { throw new ParseException("Attempted to create a color from an invalid RGB value string.", 0); }
+        finally { lock.unlock(); }
     }
 
 
     // Information requests
 
-    public Date getEarliestTime() { return earliestTime; }
+    public boolean isEmpty() { return eventsByName.isEmpty(); }
+
+    /**
+     * Returns the starting time of the earliest event in milliseconds since the epoch. Meaningless if the timeline is empty.
+     */
+    public long getEarliestTime() { return earliestTime; }
+
+    /**
+     * Returns the latest starting or ending time of any event in milliseconds since the epoch. Meaningless if the timeline is empty.
+     */
+    public long getLatestTime() { return latestTime; }
 
-    public Date getLatestTime() { return latestTime; }
+    /**
+     * Returns an unmodifiable list of every event within the timeline in chronological order.
+     * The list belongs to the current snapshot of the timeline, so repeated calls between changes share it rather than copying the timeline.
+     */
+    public List<Event> getAllEvents() { return getSnapshot().getEvents(); }
+
+    /**
+     * Returns an immutable snapshot of the timeline. The snapshot is built once and shared until the timeline next changes, at which point its version is superseded.
+     * Once built, the snapshot is returned without taking the lock. Building it copies the time-ordered set under the lock, which happens at most once per version.
+     */
+    public EventSnapshot getSnapshot() {
+        EventSnapshot currentSnapshot = snapshot;
+        if (currentSnapshot != null) { return currentSnapshot; }
 
-    public ArrayList<Event> getAllEvents() { return new ArrayList<>(events); }
+        lock.lock();
+        try {
+            if (snapshot == null) { snapshot = new EventSnapshot(version, events.toArray(new Event[0]), CHRONOLOGICAL_ORDER, earliestTime, latestTime); }
+            return snapshot;
+        }
+        finally { lock.unlock(); }
+    }
+
+    /**
+     * Returns the current version of the timeline, which increases with every change to its events.
+     */
+    public long getVersion() { return version; }
+
+    /**
+     * Returns whether the timeline has been saved since it was last changed.
+     */
+    public boolean isTimelineSaved() { return isTimelineSaved; }
+
+    /**
+     * Sets whether the timeline is to be considered saved since it was last changed.
+     * @param isTimelineSaved Whether the timeline is saved.
+     */
+    public void setTimelineSaved(boolean isTimelineSaved) {
+        if (isTimelineSaved) { this.isTimelineSaved = true; }
+        else { markUnsavedChanges(); }
+    }
 
 }
@@ -0,0 +1,94 @@
+/*
+Redstar Timeline Creator - A tool for easily creating visual timelines of events.
+Copyright (C) 2022 Xavier Mercerweiss
+
+This program is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+Redstar may be contacted for inquiry at: <redstar.software.official@gmail.com>
+ */
+
+package eventHandler;
+
+import java.awt.*;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+
+/**
+ * A parser which converts single lines of a TIMELINE file into events. Each parser reuses its own tokenizer and date formatter, and is therefore not thread-safe.
+ */
+public class EventLineParser {
+
+    private final FieldTokenizer tokenizer = new FieldTokenizer(',');
+    private final SimpleDateFormat formatter;
+    private final String datetimeFormat;
+
+    /**
+     * Constructs an EventLineParser which reads datetimes of the given format.
+     * @param datetimeFormat The format with which the times of each event are written.
+     */
+    public EventLineParser(String datetimeFormat) {
+        this.datetimeFormat = datetimeFormat;
+        this.formatter = new SimpleDateFormat(datetimeFormat);
+    }
+
+    /**
+     * Parses a given line for event details.
+     * @param line The line to be parsed.
+     * @return The event described by the line.
+     * @throws ParseException In the event of an error while parsing the event details, a ParseException is thrown.
+     */
+    public Event parseEvent(String line) throws ParseException {
+        // Line format: eventName,isSpanOfTime(int),isAboveTimelineBar(int),fontName,fgR,fgG,fgB,bgR,bgG,bgB,start,end(if isSpanOfTime == true)
+        tokenizer.reset(line);
+
+        String name = tokenizer.nextString();
+        boolean isSpanOfTime = tokenizer.nextFlag();
+        boolean isAboveTimelineBar = tokenizer.nextFlag();
+        String fontName = tokenizer.nextString();
+        Color foregroundColor = nextColor();
+        Color backgroundColor = nextColor();
+        long startingTime = tokenizer.nextDate(formatter).getTime();
+        long endingTime = startingTime;
+        if (isSpanOfTime) { endingTime = tokenizer.nextDate(formatter).getTime(); }
+
+        return new Event(name, startingTime, endingTime, isSpanOfTime, datetimeFormat, fontName,
+                foregroundColor, backgroundColor, isAboveTimelineBar);
+    }
+
+    /**
+     * Parses a given line for a pair of colors, as found in the header of a TIMELINE file.
+     * @param line The line to be parsed.
+     * @return An array containing the foreground color followed by the background color.
+     * @throws ParseException In the event of an error while parsing either color, a ParseException is thrown.
+     */
+    public Color[] parseColorPair(String line) throws ParseException {
+        tokenizer.reset(line);
+        Color foregroundColor = nextColor();
+        Color backgroundColor = nextColor();
+        return new Color[] {foregroundColor, backgroundColor};
+    }
+
+    /**
+     * Reads the next 3 fields of the current line as the red, green and blue values of a color.
+     * @return The produced color.
+     * @throws ParseException In the event an error occurs while producing a color from the fields, a ParseException is thrown.
+     */
+    private Color nextColor() throws ParseException {
+        int redValue = tokenizer.nextInt();
+        int greenValue = tokenizer.nextInt();
+        int blueValue = tokenizer.nextInt();
+        try { return EventFlyweights.getColor(redValue, greenValue, blueValue); }
+        catch (IllegalArgumentException e) { throw new ParseException("Attempted to create a color from an invalid RGB value string.", 0); }
+    }
+}
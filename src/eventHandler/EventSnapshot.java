@@ -0,0 +1,120 @@
+/*
+Redstar Timeline Creator - A tool for easily creating visual timelines of events.
+Copyright (C) 2022 Xavier Mercerweiss
+
+This program is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+Redstar may be contacted for inquiry at: <redstar.software.official@gmail.com>
+ */
+
+package eventHandler;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * An immutable view of every event within a timeline at a single point in time, in chronological order.
+ * Snapshots are cheap to hold and share, and carry a version number which increases with every change to the timeline, allowing caches derived from the timeline to be keyed on it.
+ */
+public final class EventSnapshot {
+
+    private final long version;
+    private final List<Event> events;
+    private final Comparator<Event> order;
+    private final long earliestTime;
+    private final long latestTime;
+    private volatile ColumnarEventStore columns;
+
+    /**
+     * Constructs an EventSnapshot.
+     * @param version The version of the timeline captured by the snapshot.
+     * @param events The events of the timeline in chronological order. The array is owned by the snapshot and must not be modified afterwards.
+     * @param order The chronological order of the events.
+     * @param earliestTime The starting time of the earliest event in milliseconds since the epoch.
+     * @param latestTime The latest ending time of any event in milliseconds since the epoch.
+     */
+    EventSnapshot(long version, Event[] events, Comparator<Event> order, long earliestTime, long latestTime) {
+        this.version = version;
+        this.events = Collections.unmodifiableList(Arrays.asList(events));
+        this.order = order;
+        this.earliestTime = earliestTime;
+        this.latestTime = latestTime;
+    }
+
+
+    // Information Requests
+
+    /**
+     * Returns the version of the timeline captured by the snapshot. Greater versions were captured after later changes.
+     */
+    public long getVersion() { return version; }
+
+    /**
+     * Returns an unmodifiable list of every event within the snapshot in chronological order.
+     */
+    public List<Event> getEvents() { return events; }
+
+    /**
+     * Returns a column-wise copy of the events within the snapshot, from which the timeline may be laid out without reading Event objects.
+     * The copy is made the first time it is requested and shared thereafter, so snapshots which are never laid out never pay for it.
+     * Threads requesting it at once may each make a copy, any of which is equally valid.
+     */
+    public ColumnarEventStore getColumns() {
+        ColumnarEventStore currentColumns = columns;
+        if (currentColumns == null) {
+            currentColumns = new ColumnarEventStore(events);
+            columns = currentColumns;
+        }
+        return currentColumns;
+    }
+
+    /**
+     * Returns the event at the given chronological position.
+     * @param index The position of the event, with the earliest event at 0.
+     */
+    public Event get(int index) { return events.get(index); }
+
+    /**
+     * Returns the chronological position of the given event within the snapshot, found by binary search.
+     * @param event The event to be found.
+     * @return The position of the event, or a negative value if the snapshot does not contain it.
+     */
+    public int indexOf(Event event) {
+        int index = Collections.binarySearch(events, event, order);
+        return (index >= 0 && events.get(index) == event) ? index : -1;
+    }
+
+    /**
+     * Returns the number of events within the snapshot.
+     */
+    public int size() { return events.size(); }
+
+    /**
+     * Returns whether the snapshot contains no events.
+     */
+    public boolean isEmpty() { return events.isEmpty(); }
+
+    /**
+     * Returns the starting time of the earliest event in milliseconds since the epoch. Meaningless if the snapshot is empty.
+     */
+    public long getEarliestTime() { return earliestTime; }
+
+    /**
+     * Returns the latest ending time of any event in milliseconds since the epoch. Meaningless if the snapshot is empty.
+     */
+    public long getLatestTime() { return latestTime; }
+
+}
@@ -0,0 +1,138 @@
+/*
+Redstar Timeline Creator - A tool for easily creating visual timelines of events.
+Copyright (C) 2022 Xavier Mercerweiss
+
+This program is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+Redstar may be contacted for inquiry at: <redstar.software.official@gmail.com>
+ */
+
+package eventHandler;
+
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.text.ParsePosition;
+import java.util.Date;
+
+/**
+ * A reusable tokenizer which reads the delimited fields of a single line in place, without splitting the line into an array of substrings.
+ */
+public class FieldTokenizer {
+
+    private final char delimiter;
+    private final ParsePosition datePosition = new ParsePosition(0);
+
+    private String line;
+    private int position;
+    private int fieldStart;
+    private int fieldEnd;
+
+
+    // Initialization Methods
+
+    /**
+     * Constructs a FieldTokenizer which separates fields by the given delimiter.
+     * @param delimiter The character separating each field of a line.
+     */
+    public FieldTokenizer(char delimiter) { this.delimiter = delimiter; }
+
+    /**
+     * Prepares the tokenizer to read the fields of a new line.
+     * @param line The line to be tokenized.
+     */
+    public void reset(String line) {
+        this.line = line;
+        this.position = 0;
+    }
+
+
+    // Public Methods
+
+    /**
+     * Determines whether any fields of the current line remain unread.
+     * @return Whether another field may be read from the current line.
+     */
+    public boolean hasMoreFields() { return position <= line.length(); }
+
+    /**
+     * Reads the next field of the current line as a string.
+     * @return The contents of the next field.
+     * @throws ParseException If the current line has no fields remaining, a ParseException is thrown.
+     */
+    public String nextString() throws ParseException {
+        advance();
+        return line.substring(fieldStart, fieldEnd);
+    }
+
+    /**
+     * Reads the next field of the current line as a base 10 integer, without allocating a substring.
+     * @return The integer value of the next field.
+     * @throws ParseException If the next field is missing or is not an integer, a ParseException is thrown.
+     */
+    public int nextInt() throws ParseException {
+        advance();
+        int index = fieldStart;
+        boolean isNegative = index < fieldEnd && line.charAt(index) == '-';
+        if (isNegative) { index++; }
+        if (index == fieldEnd) { throw new ParseException("Expected an integer field.", fieldStart); }
+
+        long value = 0;
+        for (; index < fieldEnd; index++) {
+            int digit = line.charAt(index) - '0';
+            if (digit < 0 || digit > 9) { throw new ParseException("Expected an integer field.", index); }
+            value = (value * 10) + digit;
+            if (value > Integer.MAX_VALUE + 1L) { throw new ParseException("Integer field out of range.", fieldStart); }
+        }
+        if (isNegative) { value = -value; }
+        if (value > Integer.MAX_VALUE) { throw new ParseException("Integer field out of range.", fieldStart); }
+        return (int) value;
+    }
+
+    /**
+     * Reads the next field of the current line as a flag, which is true only if the field is exactly "1".
+     * @return The value of the flag.
+     * @throws ParseException If the current line has no fields remaining, a ParseException is thrown.
+     */
+    public boolean nextFlag() throws ParseException {
+        advance();
+        return fieldEnd - fieldStart == 1 && line.charAt(fieldStart) == '1';
+    }
+
+    /**
+     * Reads the next field of the current line as a datetime of the given format, parsing the line in place.
+     * @param format The format of the datetime.
+     * @return The parsed datetime.
+     * @throws ParseException If the next field is missing or does not match the given format, a ParseException is thrown.
+     */
+    public Date nextDate(DateFormat format) throws ParseException {
+        advance();
+        datePosition.setIndex(fieldStart);
+        datePosition.setErrorIndex(-1);
+        Date date = format.parse(line, datePosition);
+        if (date == null) { throw new ParseException("Unparseable date field.", datePosition.getErrorIndex()); }
+        return date;
+    }
+
+    /**
+     * Moves the tokenizer onto the next field of the current line.
+     * @throws ParseException If the current line has no fields remaining, a ParseException is thrown.
+     */
+    private void advance() throws ParseException {
+        if (!hasMoreFields()) { throw new ParseException("Line is missing one or more fields.", position); }
+        fieldStart = position;
+        int delimiterIndex = line.indexOf(delimiter, position);
+        fieldEnd = (delimiterIndex < 0) ? line.length() : delimiterIndex;
+        position = fieldEnd + 1;
+    }
+}
@@ -0,0 +1,269 @@
+/*
+Redstar Timeline Creator - A tool for easily creating visual timelines of events.
+Copyright (C) 2022 Xavier Mercerweiss
+
+This program is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+Redstar may be contacted for inquiry at: <redstar.software.official@gmail.com>
+ */
+
+package eventHandler;
+
+import java.awt.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+
+/**
+ * A parser which reads events directly from the bytes of a memory-mapped TIMELINE file. Only names and fonts are decoded into strings;
+ * colors, flags and datetimes are parsed straight from the bytes. Each parser reuses its own buffers and calendar, and is therefore not thread-safe.
+ */
+public class MappedEventParser {
+
+    private final Charset charset;
+    private final String datetimeFormat;
+    private final SimpleDateFormat formatter;
+    private final Calendar calendar;
+    private final boolean isDefaultDatetimeFormat;
+
+    private ByteBuffer buffer;
+    private int position;
+    private int lineEnd;
+    private int fieldStart;
+    private int fieldEnd;
+    private byte[] scratch = new byte[256];
+
+    public static final String DEFAULT_DATETIME_FORMAT = "HH:mm dd/MM/yyyy";
+
+    /**
+     * Constructs a MappedEventParser which reads datetimes of the given format and text of the given charset.
+     * @param datetimeFormat The format with which the times of each event are written.
+     * @param charset The charset with which names and fonts are written.
+     */
+    public MappedEventParser(String datetimeFormat, Charset charset) {
+        this.charset = charset;
+        this.datetimeFormat = datetimeFormat;
+        this.formatter = new SimpleDateFormat(datetimeFormat);
+        this.calendar = (Calendar) formatter.getCalendar().clone();
+        this.isDefaultDatetimeFormat = datetimeFormat.equals(DEFAULT_DATETIME_FORMAT);
+    }
+
+
+    // Public Methods
+
+    /**
+     * Parses every line within a region of the given buffer. The region must begin at the start of a line and end at the end of a line.
+     * @param buffer The buffer containing the file contents.
+     * @param start The index of the first byte of the region.
+     * @param end The index following the last byte of the region.
+     * @return The events described by each line of the region, in order.
+     * @throws ParseException In the event of an error while parsing the event details, a ParseException is thrown.
+     */
+    public ArrayList<Event> parseEvents(ByteBuffer buffer, int start, int end) throws ParseException {
+        this.buffer = buffer;
+        ArrayList<Event> events = new ArrayList<>();
+        int nextLineStart;
+        for (int lineStart = start; lineStart < end; lineStart = nextLineStart) {
+            int lineFeed = indexOf(buffer, (byte) '\n', lineStart, end);
+            if (lineFeed < 0) { lineFeed = end; }
+            nextLineStart = lineFeed + 1;
+            events.add(parseEvent(lineStart, trimCarriageReturn(buffer, lineStart, lineFeed)));
+        }
+        this.buffer = null;
+        return events;
+    }
+
+    /**
+     * Finds the first occurrence of a byte within a region of the given buffer.
+     * @param buffer The buffer to be searched.
+     * @param value The byte to be found.
+     * @param start The index at which the search begins.
+     * @param end The index at which the search ends, exclusive.
+     * @return The index of the byte. -1 if the byte does not occur within the region.
+     */
+    public static int indexOf(ByteBuffer buffer, byte value, int start, int end) {
+        for (int index = start; index < end; index++) {
+            if (buffer.get(index) == value) { return index; }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the end of a line excluding any carriage return preceding its line feed.
+     * @param buffer The buffer containing the line.
+     * @param lineStart The index of the first byte of the line.
+     * @param lineEnd The index following the last byte of the line.
+     * @return The index following the last byte of the line's content.
+     */
+    public static int trimCarriageReturn(ByteBuffer buffer, int lineStart, int lineEnd) {
+        if (lineEnd > lineStart && buffer.get(lineEnd - 1) == '\r') { return lineEnd - 1; }
+        return lineEnd;
+    }
+
+
+    // Parsing Methods
+
+    /**
+     * Parses a single line for event details.
+     * @param lineStart The index of the first byte of the line.
+     * @param contentEnd The index following the last byte of the line's content.
+     * @return The event described by the line.
+     * @throws ParseException In the event of an error while parsing the event details, a ParseException is thrown.
+     */
+    private Event parseEvent(int lineStart, int contentEnd) throws ParseException {
+        // Line format: eventName,isSpanOfTime(int),isAboveTimelineBar(int),fontName,fgR,fgG,fgB,bgR,bgG,bgB,start,end(if isSpanOfTime == true)
+        position = lineStart;
+        lineEnd = contentEnd;
+
+        String name = nextString();
+        boolean isSpanOfTime = nextFlag();
+        boolean isAboveTimelineBar = nextFlag();
+        String fontName = nextString();
+        Color foregroundColor = nextColor();
+        Color backgroundColor = nextColor();
+        long startingTime = nextTime();
+        long endingTime = startingTime;
+        if (isSpanOfTime) { endingTime = nextTime(); }
+
+        return new Event(name, startingTime, endingTime, isSpanOfTime, datetimeFormat, fontName,
+                foregroundColor, backgroundColor, isAboveTimelineBar);
+    }
+
+    /**
+     * Moves the parser onto the next field of the current line.
+     * @throws ParseException If the current line has no fields remaining, a ParseException is thrown.
+     */
+    private void advance() throws ParseException {
+        if (position > lineEnd) { throw new ParseException("Line is missing one or more fields.", position); }
+        fieldStart = position;
+        int delimiterIndex = indexOf(buffer, (byte) ',', position, lineEnd);
+        fieldEnd = (delimiterIndex < 0) ? lineEnd : delimiterIndex;
+        position = fieldEnd + 1;
+    }
+
+    /**
+     * Decodes the next field of the current line into a string.
+     * @return The contents of the next field.
+     * @throws ParseException If the current line has no fields remaining, a ParseException is thrown.
+     */
+    private String nextString() throws ParseException {
+        advance();
+        return decodeField();
+    }
+
+    /**
+     * Reads the next field of the current line as a flag, which is true only if the field is exactly "1".
+     * @return The value of the flag.
+     * @throws ParseException If the current line has no fields remaining, a ParseException is thrown.
+     */
+    private boolean nextFlag() throws ParseException {
+        advance();
+        return fieldEnd - fieldStart == 1 && buffer.get(fieldStart) == '1';
+    }
+
+    /**
+     * Reads the next 3 fields of the current line as the red, green and blue values of a color.
+     * @return The produced color.
+     * @throws ParseException In the event an error occurs while producing a color from the fields, a ParseException is thrown.
+     */
+    private Color nextColor() throws ParseException {
+        int redValue = nextInt();
+        int greenValue = nextInt();
+        int blueValue = nextInt();
+        try { return EventFlyweights.getColor(redValue, greenValue, blueValue); }
+        catch (IllegalArgumentException e) { throw new ParseException("Attempted to create a color from an invalid RGB value string.", 0); }
+    }
+
+    /**
+     * Reads the next field of the current line as a base 10 integer.
+     * @return The integer value of the next field.
+     * @throws ParseException If the next field is missing or is not an integer, a ParseException is thrown.
+     */
+    private int nextInt() throws ParseException {
+        advance();
+        int index = fieldStart;
+        boolean isNegative = index < fieldEnd && buffer.get(index) == '-';
+        if (isNegative) { index++; }
+        if (index == fieldEnd) { throw new ParseException("Expected an integer field.", fieldStart); }
+
+        long value = 0;
+        for (; index < fieldEnd; index++) {
+            int digit = buffer.get(index) - '0';
+            if (digit < 0 || digit > 9) { throw new ParseException("Expected an integer field.", index); }
+            value = (value * 10) + digit;
+            if (value > Integer.MAX_VALUE + 1L) { throw new ParseException("Integer field out of range.", fieldStart); }
+        }
+        if (isNegative) { value = -value; }
+        if (value > Integer.MAX_VALUE) { throw new ParseException("Integer field out of range.", fieldStart); }
+        return (int) value;
+    }
+
+    /**
+     * Reads the next field of the current line as a datetime. Datetimes of the default format are read straight from the bytes,
+     * while any other format, or any irregular datetime, is decoded and parsed by a SimpleDateFormat.
+     * @return The parsed datetime in milliseconds since the epoch.
+     * @throws ParseException If the next field is missing or does not match the datetime format, a ParseException is thrown.
+     */
+    private long nextTime() throws ParseException {
+        advance();
+        if (isDefaultDatetimeFormat && parseDefaultFormatDate()) { return calendar.getTimeInMillis(); }
+        return formatter.parse(decodeField()).getTime();
+    }
+
+    /**
+     * Parses the current field as a datetime of the format "HH:mm dd/MM/yyyy" into the parser's calendar, in the same manner as a lenient SimpleDateFormat.
+     * @return Whether the field consists solely of the expected digits and separators, and was therefore parsed.
+     */
+    private boolean parseDefaultFormatDate() {
+        int[] values = new int[5];
+        byte[] separators = {':', ' ', '/', '/'};
+        int index = fieldStart;
+        for (int valueIndex = 0; valueIndex < values.length; valueIndex++) {
+            int digitsStart = index;
+            int value = 0;
+            while (index < fieldEnd && index - digitsStart < 9) {
+                int digit = buffer.get(index) - '0';
+                if (digit < 0 || digit > 9) { break; }
+                value = (value * 10) + digit;
+                index++;
+            }
+            if (index == digitsStart) { return false; }
+            values[valueIndex] = value;
+
+            if (valueIndex < separators.length) {
+                if (index == fieldEnd || buffer.get(index) != separators[valueIndex]) { return false; }
+                index++;
+            }
+        }
+        if (index != fieldEnd) { return false; }
+
+        calendar.clear();
+        calendar.set(values[4], values[3] - 1, values[2], values[0], values[1]);
+        return true;
+    }
+
+    /**
+     * Decodes the current field into a string.
+     * @return The contents of the current field.
+     */
+    private String decodeField() {
+        int length = fieldEnd - fieldStart;
+        if (scratch.length < length) { scratch = new byte[Math.max(length, scratch.length * 2)]; }
+        buffer.get(fieldStart, scratch, 0, length);
+        return new String(scratch, 0, length, charset);
+    }
+}
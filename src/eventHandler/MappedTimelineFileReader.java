@@ -0,0 +1,241 @@
+/*
+Redstar Timeline Creator - A tool for easily creating visual timelines of events.
+Copyright (C) 2022 Xavier Mercerweiss
+
+This program is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+Redstar may be contacted for inquiry at: <redstar.software.official@gmail.com>
+ */
+
+package eventHandler;
+
+import java.awt.*;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * A reader which memory-maps a TIMELINE file and parses it directly from the mapped bytes, without decoding the file into lines.
+ * Files larger than a single mapping are mapped one window at a time, with each window ending on a line boundary.
+ */
+public class MappedTimelineFileReader implements Closeable {
+
+    private final FileChannel channel;
+    private final Charset charset;
+    private final String datetimeFormat;
+    private final ThreadLocal<MappedEventParser> workerParsers;
+    private final long fileSize;
+
+    private long eventsStart;
+    private String timelineTitle;
+    private String titleFont;
+    private Color foregroundColor;
+    private Color backgroundColor;
+
+    private final int MAXIMUM_WINDOW_SIZE = 1 << 30;
+    private final int CHUNKS_PER_WORKER = 4;
+    private final int MINIMUM_CHUNK_SIZE = 1 << 16;
+
+    /**
+     * Constructs a MappedTimelineFileReader which reads the given file.
+     * @param filePath The path to the source file.
+     * @param datetimeFormat The format with which the times of each event are written.
+     * @throws IOException In the event the source file cannot be opened, an IOException is thrown.
+     */
+    public MappedTimelineFileReader(String filePath, String datetimeFormat) throws IOException {
+        this.channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ);
+        this.charset = Charset.defaultCharset();
+        this.datetimeFormat = datetimeFormat;
+        this.workerParsers = ThreadLocal.withInitial(() -> new MappedEventParser(datetimeFormat, charset));
+        this.fileSize = channel.size();
+    }
+
+
+    // Public Methods
+
+    /**
+     * Reads the header of the source file. Must be called once, before any events are read.
+     * @throws IOException In the event of an error while reading the source file, an IOException is thrown.
+     * @throws ParseException In the event the header is incomplete or invalid, a ParseException is thrown.
+     */
+    public void readHeader() throws IOException, ParseException {
+        /* Header format:
+
+        Timeline title
+        Title font
+        fgR, fgG, fgB, bgR, bgG, bgB
+         */
+        MappedByteBuffer window = mapWindow(0);
+        int end = window.limit();
+        String[] lines = new String[3];
+        int lineStart = 0;
+        for (int index = 0; index < lines.length; index++) {
+            if (lineStart >= end) { throw new ParseException("Source file ends before the end of its header.", 0); }
+            int lineEnd = MappedEventParser.indexOf(window, (byte) '\n', lineStart, end);
+            if (lineEnd < 0) { lineEnd = end; }
+            lines[index] = decode(window, lineStart, MappedEventParser.trimCarriageReturn(window, lineStart, lineEnd));
+            lineStart = lineEnd + 1;
+        }
+        eventsStart = Math.min(lineStart, fileSize);
+
+        timelineTitle = lines[0];
+        titleFont = lines[1];
+        Color[] colors = new EventLineParser(datetimeFormat).parseColorPair(lines[2]);
+        foregroundColor = colors[0];
+        backgroundColor = colors[1];
+    }
+
+    /**
+     * Reads every event of the source file. The events of each window are split into chunks on line boundaries, which are parsed concurrently on the given pool.
+     * @param pool The pool on which each chunk is parsed.
+     * @return Every event of the source file, in the order in which they are written.
+     * @throws IOException In the event of an error while reading the source file, an IOException is thrown.
+     * @throws ParseException In the event of an error while parsing the event details, a ParseException is thrown.
+     */
+    public ArrayList<Event> readEvents(ForkJoinPool pool) throws IOException, ParseException {
+        ArrayList<Event> events = new ArrayList<>();
+        long windowStart = eventsStart;
+        while (windowStart < fileSize) {
+            MappedByteBuffer window = mapWindow(windowStart);
+            int windowEnd = findEndOfLastCompleteLine(window, windowStart);
+            parseWindow(window, windowEnd, pool, events);
+            windowStart += windowEnd;
+        }
+        return events;
+    }
+
+    @Override
+    public void close() throws IOException { channel.close(); }
+
+
+    // Parsing Methods
+
+    /**
+     * Maps a window of the source file beginning at the given position.
+     * @param windowStart The position within the file at which the window begins.
+     * @return The mapped window.
+     * @throws IOException In the event of an error while mapping the source file, an IOException is thrown.
+     */
+    private MappedByteBuffer mapWindow(long windowStart) throws IOException {
+        long windowSize = Math.min(fileSize - windowStart, MAXIMUM_WINDOW_SIZE);
+        return channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowSize);
+    }
+
+    /**
+     * Finds the end of the last line wholly contained within a window, so that no line is split between 2 windows.
+     * @param window The mapped window.
+     * @param windowStart The position within the file at which the window begins.
+     * @return The number of bytes of the window to be parsed.
+     * @throws ParseException If a single line is larger than the maximum window size, a ParseException is thrown.
+     */
+    private int findEndOfLastCompleteLine(MappedByteBuffer window, long windowStart) throws ParseException {
+        int size = window.limit();
+        if (windowStart + size == fileSize) { return size; }
+        for (int index = size - 1; index >= 0; index--) {
+            if (window.get(index) == '\n') { return index + 1; }
+        }
+        throw new ParseException("Line exceeds the maximum mappable length.", 0);
+    }
+
+    /**
+     * Parses the events within a window, splitting the window into chunks which end on line boundaries.
+     * @param window The mapped window.
+     * @param windowEnd The number of bytes of the window to be parsed.
+     * @param pool The pool on which each chunk is parsed.
+     * @param events The list to which the parsed events are appended in order.
+     * @throws ParseException In the event of an error while parsing the event details, a ParseException is thrown.
+     */
+    private void parseWindow(MappedByteBuffer window, int windowEnd, ForkJoinPool pool, ArrayList<Event> events) throws ParseException {
+        int chunkCount = Math.max(1, Math.min(pool.getParallelism() * CHUNKS_PER_WORKER, windowEnd / MINIMUM_CHUNK_SIZE));
+        if (chunkCount == 1) {
+            events.addAll(workerParsers.get().parseEvents(window, 0, windowEnd));
+            return;
+        }
+
+        ArrayList<ForkJoinTask<ArrayList<Event>>> chunks = new ArrayList<>(chunkCount);
+        int chunkStart = 0;
+        for (int chunk = 1; chunk <= chunkCount && chunkStart < windowEnd; chunk++) {
+            int chunkEnd = (chunk == chunkCount) ? windowEnd : findNextLineStart(window, (int) ((long) windowEnd * chunk / chunkCount), windowEnd);
+            int start = chunkStart;
+            chunks.add(pool.submit(() -> workerParsers.get().parseEvents(window, start, chunkEnd)));
+            chunkStart = chunkEnd;
+        }
+        for (ForkJoinTask<ArrayList<Event>> chunk:chunks) { events.addAll(awaitChunk(chunk)); }
+    }
+
+    /**
+     * Finds the start of the first line beginning at or after the given index.
+     * @param window The mapped window.
+     * @param index The index from which the search begins.
+     * @param windowEnd The number of bytes of the window to be parsed.
+     * @return The index at which the next line begins.
+     */
+    private int findNextLineStart(MappedByteBuffer window, int index, int windowEnd) {
+        if (index == 0) { return 0; }
+        int lineFeed = MappedEventParser.indexOf(window, (byte) '\n', index - 1, windowEnd);
+        return (lineFeed < 0) ? windowEnd : lineFeed + 1;
+    }
+
+    /**
+     * Waits for a chunk to be parsed and returns its events.
+     * @param chunk The task parsing the chunk.
+     * @return The events of the chunk.
+     * @throws ParseException In the event of an error while parsing the chunk, a ParseException is thrown.
+     */
+    private ArrayList<Event> awaitChunk(ForkJoinTask<ArrayList<Event>> chunk) throws ParseException {
+        try { return chunk.get(); }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ParseException("Interrupted while parsing the source file.", 0);
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof ParseException) { throw (ParseException) e.getCause(); }
+            throw new ParseException("Failed to parse the source file: " + e.getCause(), 0);
+        }
+    }
+
+    /**
+     * Decodes a region of the given window into a string.
+     * @param window The mapped window.
+     * @param start The index of the first byte of the region.
+     * @param end The index following the last byte of the region.
+     * @return The decoded string.
+     */
+    private String decode(MappedByteBuffer window, int start, int end) {
+        byte[] bytes = new byte[end - start];
+        window.get(start, bytes);
+        return new String(bytes, charset);
+    }
+
+
+    // Information Requests
+
+    public String getTimelineTitle() { return timelineTitle; }
+
+    public String getTitleFont() { return titleFont; }
+
+    public Color getForegroundColor() { return foregroundColor; }
+
+    public Color getBackgroundColor() { return backgroundColor; }
+
+}
@@ -0,0 +1,34 @@
+/*
+Redstar Timeline Creator - A tool for easily creating visual timelines of events.
+Copyright (C) 2022 Xavier Mercerweiss
+
+This program is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+Redstar may be contacted for inquiry at: <redstar.software.official@gmail.com>
+ */
+
+package eventHandler;
+
+/**
+ * A listener notified of the changes made to a timeline. Changes are coalesced, so that a burst of edits arrives as a single delta.
+ */
+public interface TimelineChangeListener {
+
+    /**
+     * Called on the Swing event dispatch thread with every change made to the timeline since the previous call.
+     * @param delta The changes made to the timeline.
+     */
+    void timelineChanged(TimelineDelta delta);
+
+}
@@ -0,0 +1,156 @@
+/*
+Redstar Timeline Creator - A tool for easily creating visual timelines of events.
+Copyright (C) 2022 Xavier Mercerweiss
+
+This program is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+Redstar may be contacted for inquiry at: <redstar.software.official@gmail.com>
+ */
+
+package eventHandler;
+
+import javax.swing.*;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+
+/**
+ * Collects the changes made to a timeline from any thread and publishes them to each TimelineChangeListener at most once per frame, on the Swing event dispatch thread.
+ */
+public class TimelineChangeNotifier {
+
+    private final CopyOnWriteArrayList<TimelineChangeListener> listeners;
+    private final Timer frameTimer;
+    private final Supplier<TimelineDelta> deltaSource;
+
+    private LinkedHashMap<String, Event[]> changesByName;
+    private boolean isBulkChange = false;
+    private boolean isStyleChanged = false;
+
+    private final int FRAME_INTERVAL_IN_MILLISECONDS = 16;
+    private final int BULK_CHANGE_THRESHOLD = 1024;
+    // Beyond this many changed names, listing every change costs more than reading the timeline again.
+
+
+    // Initialization Methods
+
+    /**
+     * Constructs a TimelineChangeNotifier with no listeners.
+     * @param deltaSource Takes the changes recorded since the previous publication through takeDelta(), together with the snapshot of the timeline they lead to.
+     */
+    public TimelineChangeNotifier(Supplier<TimelineDelta> deltaSource) {
+        this.deltaSource = deltaSource;
+        this.listeners = new CopyOnWriteArrayList<>();
+        this.changesByName = new LinkedHashMap<>();
+        this.frameTimer = new Timer(FRAME_INTERVAL_IN_MILLISECONDS, e -> publishChanges());
+        this.frameTimer.setRepeats(false);
+    }
+
+
+    // Public Methods
+
+    /**
+     * Adds a listener to be notified of subsequent changes.
+     * @param listener The listener to be added.
+     */
+    public void addListener(TimelineChangeListener listener) { listeners.add(listener); }
+
+    /**
+     * Removes a listener from those notified of changes.
+     * @param listener The listener to be removed.
+     */
+    public void removeListener(TimelineChangeListener listener) { listeners.remove(listener); }
+
+    /**
+     * Records a change to the event bearing the given name.
+     * @param eventName The name of the changed event.
+     * @param previousEvent The event bearing the name before the change, or null if there was none.
+     * @param resultingEvent The event bearing the name after the change, or null if there is none.
+     */
+    public synchronized void eventChanged(String eventName, Event previousEvent, Event resultingEvent) {
+        if (!isBulkChange) {
+            Event[] change = changesByName.get(eventName);
+            if (change == null) { changesByName.put(eventName, new Event[] {previousEvent, resultingEvent}); }
+            else { change[1] = resultingEvent; }
+            if (changesByName.size() > BULK_CHANGE_THRESHOLD) { markBulkChange(); }
+        }
+        schedulePublication();
+    }
+
+    /**
+     * Records a change too broad for individual changes to be listed, such as the timeline being cleared or loaded.
+     */
+    public synchronized void bulkChanged() {
+        markBulkChange();
+        schedulePublication();
+    }
+
+    /**
+     * Records a change to the title, title font or colors of the timeline.
+     */
+    public synchronized void styleChanged() {
+        isStyleChanged = true;
+        schedulePublication();
+    }
+
+
+    // Publication Methods
+
+    private void markBulkChange() {
+        isBulkChange = true;
+        changesByName = new LinkedHashMap<>();
+    }
+
+    /**
+     * Starts the frame timer unless a publication is already pending.
+     */
+    private void schedulePublication() {
+        if (!frameTimer.isRunning()) { frameTimer.start(); }
+    }
+
+    /**
+     * Publishes every change recorded since the previous publication to each listener. Called on the event dispatch thread once per frame in which changes were made.
+     */
+    private void publishChanges() {
+        TimelineDelta delta = deltaSource.get();
+        if (!delta.areEventsChanged() && !delta.isStyleChanged()) { return; }
+        for (TimelineChangeListener listener:listeners) { listener.timelineChanged(delta); }
+    }
+
+    /**
+     * Builds a delta of the recorded changes and resets the record. Must be called while no further changes can be recorded, so that the snapshot reflects every recorded change and no other.
+     * @param snapshot The snapshot of the timeline following the recorded changes.
+     * @return The net changes recorded since the previous delta.
+     */
+    synchronized TimelineDelta takeDelta(EventSnapshot snapshot) {
+        ArrayList<Event> addedEvents = new ArrayList<>();
+        ArrayList<Event> replacingEvents = new ArrayList<>();
+        ArrayList<Event> removedEvents = new ArrayList<>();
+        for (Event[] change:changesByName.values()) {
+            Event previousEvent = change[0];
+            Event resultingEvent = change[1];
+            if (previousEvent == resultingEvent) { continue; }
+            if (previousEvent == null) { addedEvents.add(resultingEvent); }
+            else if (resultingEvent == null) { removedEvents.add(previousEvent); }
+            else { replacingEvents.add(resultingEvent); }
+        }
+
+        TimelineDelta delta = new TimelineDelta(snapshot, isBulkChange, isStyleChanged, addedEvents, replacingEvents, removedEvents);
+        changesByName = new LinkedHashMap<>();
+        isBulkChange = false;
+        isStyleChanged = false;
+        return delta;
+    }
+}
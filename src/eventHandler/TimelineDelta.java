@@ -0,0 +1,103 @@
+/*
+Redstar Timeline Creator - A tool for easily creating visual timelines of events.
+Copyright (C) 2022 Xavier Mercerweiss
+
+This program is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+Redstar may be contacted for inquiry at: <redstar.software.official@gmail.com>
+ */
+
+package eventHandler;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The net changes made to a timeline over a period of time, as published to each TimelineChangeListener.
+ * Each event name appears at most once, reflecting only the difference between its state before the first and after the last change within the period.
+ * A bulk change, such as the timeline being cleared or loaded, lists no individual events and calls for the timeline to be read again in full.
+ * Each delta carries the snapshot of the timeline taken as the delta was, so that listeners may place the changed events without reading a timeline which has since moved on.
+ */
+public final class TimelineDelta {
+
+    private final EventSnapshot snapshot;
+    private final boolean isBulkChange;
+    private final boolean isStyleChanged;
+    private final List<Event> addedEvents;
+    private final List<Event> replacingEvents;
+    private final List<Event> removedEvents;
+
+    /**
+     * Constructs a TimelineDelta.
+     * @param snapshot The snapshot of the timeline following the changes.
+     * @param isBulkChange Whether the timeline changed too broadly for individual changes to be listed.
+     * @param isStyleChanged Whether the title, title font or colors of the timeline changed.
+     * @param addedEvents The events added under names which bore no event before.
+     * @param replacingEvents The events which replaced an existing event of the same name.
+     * @param removedEvents The events removed without replacement.
+     */
+    TimelineDelta(EventSnapshot snapshot, boolean isBulkChange, boolean isStyleChanged,
+                  List<Event> addedEvents, List<Event> replacingEvents, List<Event> removedEvents) {
+        this.snapshot = snapshot;
+        this.isBulkChange = isBulkChange;
+        this.isStyleChanged = isStyleChanged;
+        this.addedEvents = Collections.unmodifiableList(addedEvents);
+        this.replacingEvents = Collections.unmodifiableList(replacingEvents);
+        this.removedEvents = Collections.unmodifiableList(removedEvents);
+    }
+
+
+    // Information Requests
+
+    /**
+     * Returns the version of the timeline following the changes.
+     */
+    public long getVersion() { return snapshot.getVersion(); }
+
+    /**
+     * Returns the snapshot of the timeline following the changes, in which every added and replacing event may be found.
+     */
+    public EventSnapshot getSnapshot() { return snapshot; }
+
+    /**
+     * Returns whether the timeline changed too broadly for individual changes to be listed, in which case it is to be read again in full.
+     */
+    public boolean isBulkChange() { return isBulkChange; }
+
+    /**
+     * Returns whether the title, title font or colors of the timeline changed.
+     */
+    public boolean isStyleChanged() { return isStyleChanged; }
+
+    /**
+     * Returns whether any event was added, replaced or removed.
+     */
+    public boolean areEventsChanged() { return isBulkChange || !addedEvents.isEmpty() || !replacingEvents.isEmpty() || !removedEvents.isEmpty(); }
+
+    /**
+     * Returns the events added under names which bore no event before.
+     */
+    public List<Event> getAddedEvents() { return addedEvents; }
+
+    /**
+     * Returns the events which replaced an existing event of the same name.
+     */
+    public List<Event> getReplacingEvents() { return replacingEvents; }
+
+    /**
+     * Returns the events removed without replacement.
+     */
+    public List<Event> getRemovedEvents() { return removedEvents; }
+
+}
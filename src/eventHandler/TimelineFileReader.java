@@ -0,0 +1,191 @@
+/*
+Redstar Timeline Creator - A tool for easily creating visual timelines of events.
+Copyright (C) 2022 Xavier Mercerweiss
+
+This program is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+Redstar may be contacted for inquiry at: <redstar.software.official@gmail.com>
+ */
+
+package eventHandler;
+
+import java.awt.*;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.FileReader;
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * A reader which parses a TIMELINE file one line at a time, so that the raw contents of the file are never held in memory as a whole.
+ */
+public class TimelineFileReader implements Closeable {
+
+    private final BufferedReader reader;
+    private final EventLineParser parser;
+    private final ThreadLocal<EventLineParser> workerParsers;
+
+    private String timelineTitle;
+    private String titleFont;
+    private Color foregroundColor;
+    private Color backgroundColor;
+
+    private final int LINES_PER_BLOCK = 4096;
+    private final int PENDING_BLOCKS_PER_WORKER = 4;
+
+    /**
+     * Constructs a TimelineFileReader which reads the given file.
+     * @param filePath The path to the source file.
+     * @param datetimeFormat The format with which the times of each event are written.
+     * @throws IOException In the event the source file cannot be opened, an IOException is thrown.
+     */
+    public TimelineFileReader(String filePath, String datetimeFormat) throws IOException {
+        this.reader = new BufferedReader(new FileReader(filePath));
+        this.parser = new EventLineParser(datetimeFormat);
+        this.workerParsers = ThreadLocal.withInitial(() -> new EventLineParser(datetimeFormat));
+    }
+
+
+    // Public Methods
+
+    /**
+     * Reads the header of the source file. Must be called once, before any events are read.
+     * @throws IOException In the event of an error while reading the source file, an IOException is thrown.
+     * @throws ParseException In the event the header is incomplete or invalid, a ParseException is thrown.
+     */
+    public void readHeader() throws IOException, ParseException {
+        /* Header format:
+
+        Timeline title
+        Title font
+        fgR, fgG, fgB, bgR, bgG, bgB
+         */
+        timelineTitle = readHeaderLine();
+        titleFont = readHeaderLine();
+        Color[] colors = parser.parseColorPair(readHeaderLine());
+        foregroundColor = colors[0];
+        backgroundColor = colors[1];
+    }
+
+    /**
+     * Reads and parses the next event of the source file.
+     * @return The next event of the source file. Null if no events remain.
+     * @throws IOException In the event of an error while reading the source file, an IOException is thrown.
+     * @throws ParseException In the event of an error while parsing the event details, a ParseException is thrown.
+     */
+    public Event readEvent() throws IOException, ParseException {
+        String line = reader.readLine();
+        if (line == null) { return null; }
+        return parser.parseEvent(line);
+    }
+
+    /**
+     * Reads every remaining event of the source file, parsing blocks of lines concurrently on the given pool. Each worker thread parses with its own date formatter.
+     * The number of blocks awaiting parsing is bounded, so memory use remains proportional to the parsed events rather than to the raw contents of the file.
+     * @param pool The pool on which each block of lines is parsed.
+     * @return Every remaining event of the source file, in the order in which they are written.
+     * @throws IOException In the event of an error while reading the source file, an IOException is thrown.
+     * @throws ParseException In the event of an error while parsing the event details, a ParseException is thrown.
+     */
+    public ArrayList<Event> readEventsInParallel(ForkJoinPool pool) throws IOException, ParseException {
+        ArrayList<Event> events = new ArrayList<>();
+        ArrayDeque<ForkJoinTask<ArrayList<Event>>> pendingBlocks = new ArrayDeque<>();
+        int maximumPendingBlocks = pool.getParallelism() * PENDING_BLOCKS_PER_WORKER;
+
+        for (ArrayList<String> block = readBlock(); !block.isEmpty(); block = readBlock()) {
+            ArrayList<String> lines = block;
+            pendingBlocks.add(pool.submit(() -> parseBlock(lines)));
+            if (pendingBlocks.size() >= maximumPendingBlocks) { events.addAll(awaitBlock(pendingBlocks.poll())); }
+        }
+        while (!pendingBlocks.isEmpty()) { events.addAll(awaitBlock(pendingBlocks.poll())); }
+        return events;
+    }
+
+    @Override
+    public void close() throws IOException { reader.close(); }
+
+    /**
+     * Reads a single line of the header, which must be present.
+     * @return The line read.
+     * @throws IOException In the event of an error while reading the source file, an IOException is thrown.
+     * @throws ParseException In the event the source file ends before the header is complete, a ParseException is thrown.
+     */
+    private String readHeaderLine() throws IOException, ParseException {
+        String line = reader.readLine();
+        if (line == null) { throw new ParseException("Source file ends before the end of its header.", 0); }
+        return line;
+    }
+
+    /**
+     * Reads the next block of lines from the source file.
+     * @return Up to LINES_PER_BLOCK lines. Empty if no lines remain.
+     * @throws IOException In the event of an error while reading the source file, an IOException is thrown.
+     */
+    private ArrayList<String> readBlock() throws IOException {
+        ArrayList<String> block = new ArrayList<>(LINES_PER_BLOCK);
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+            block.add(line);
+            if (block.size() == LINES_PER_BLOCK) { break; }
+        }
+        return block;
+    }
+
+    /**
+     * Parses a block of lines using the parser belonging to the current thread.
+     * @param lines The lines to be parsed.
+     * @return The events described by the lines, in order.
+     * @throws ParseException In the event of an error while parsing the event details, a ParseException is thrown.
+     */
+    private ArrayList<Event> parseBlock(ArrayList<String> lines) throws ParseException {
+        EventLineParser workerParser = workerParsers.get();
+        ArrayList<Event> events = new ArrayList<>(lines.size());
+        for (String line:lines) { events.add(workerParser.parseEvent(line)); }
+        return events;
+    }
+
+    /**
+     * Waits for a block of lines to be parsed and returns its events.
+     * @param block The task parsing the block.
+     * @return The events of the block.
+     * @throws ParseException In the event of an error while parsing the block, a ParseException is thrown.
+     */
+    private ArrayList<Event> awaitBlock(ForkJoinTask<ArrayList<Event>> block) throws ParseException {
+        try { return block.get(); }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ParseException("Interrupted while parsing the source file.", 0);
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof ParseException) { throw (ParseException) e.getCause(); }
+            throw new ParseException("Failed to parse the source file: " + e.getCause(), 0);
+        }
+    }
+
+
+    // Information Requests
+
+    public String getTimelineTitle() { return timelineTitle; }
+
+    public String getTitleFont() { return titleFont; }
+
+    public Color getForegroundColor() { return foregroundColor; }
+
+    public Color getBackgroundColor() { return backgroundColor; }
+
+}
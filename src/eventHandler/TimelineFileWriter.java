@@ -0,0 +1,260 @@
+/*
+Redstar Timeline Creator - A tool for easily creating visual timelines of events.
+Copyright (C) 2022 Xavier Mercerweiss
+
+This program is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+Redstar may be contacted for inquiry at: <redstar.software.official@gmail.com>
+ */
+
+package eventHandler;
+
+import java.awt.*;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Date;
+
+/**
+ * A writer which saves a timeline to the text TIMELINE file format, producing exactly the same bytes as writing each line through String.format and a FileWriter.
+ * Fields are appended straight into a reusable character buffer, which is encoded in the platform's default charset into a large byte buffer and written to the file in few, large writes.
+ * Datetimes are formatted through a small cache of recently written times, and those of the default format are assembled directly from a calendar. Not thread-safe.
+ */
+public class TimelineFileWriter implements Closeable {
+
+    private final FileChannel channel;
+    private final CharsetEncoder encoder;
+    private final CharBuffer characters;
+    private final ByteBuffer bytes;
+
+    private final SimpleDateFormat formatter;
+    private final Calendar calendar;
+    private final boolean isDefaultDatetimeFormat;
+    private final long[] cachedTimes;
+    private final String[] cachedTimeTexts;
+
+    private final int CHARACTER_BUFFER_SIZE = 1 << 14;
+    private final int BYTE_BUFFER_SIZE = 1 << 18;
+    private final int TIME_CACHE_SIZE = 1 << 10;
+
+    /**
+     * Constructs a TimelineFileWriter which writes to the given file, replacing any existing contents.
+     * @param filePath The path to the destination file.
+     * @param datetimeFormat The format with which the times of each event are to be written.
+     * @throws IOException In the event the destination file cannot be opened, an IOException is thrown.
+     */
+    public TimelineFileWriter(String filePath, String datetimeFormat) throws IOException {
+        this.channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        this.encoder = Charset.defaultCharset().newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.characters = CharBuffer.allocate(CHARACTER_BUFFER_SIZE);
+        this.bytes = ByteBuffer.allocateDirect(BYTE_BUFFER_SIZE);
+
+        this.formatter = new SimpleDateFormat(datetimeFormat);
+        this.calendar = (Calendar) formatter.getCalendar().clone();
+        this.isDefaultDatetimeFormat = datetimeFormat.equals(MappedEventParser.DEFAULT_DATETIME_FORMAT);
+        this.cachedTimes = new long[TIME_CACHE_SIZE];
+        this.cachedTimeTexts = new String[TIME_CACHE_SIZE];
+    }
+
+
+    // Public Methods
+
+    /**
+     * Writes a complete timeline to the destination file.
+     * @param timelineTitle The title of the timeline.
+     * @param titleFont The name of the font of the timeline's title.
+     * @param foregroundColor The foreground color of the timeline.
+     * @param backgroundColor The background color of the timeline.
+     * @param events The events of the timeline in the order they are to be written.
+     * @throws IOException In the event of an error in the writing process, an IOException is thrown.
+     */
+    public void writeTimeline(String timelineTitle, String titleFont, Color foregroundColor, Color backgroundColor,
+                              Collection<Event> events) throws IOException {
+        writeHeader(timelineTitle, titleFont, foregroundColor, backgroundColor);
+        for (Event event:events) { writeEvent(event); }
+    }
+
+    /**
+     * Writes the timeline header to the destination file.
+     * @param timelineTitle The title of the timeline.
+     * @param titleFont The name of the font of the timeline's title.
+     * @param foregroundColor The foreground color of the timeline.
+     * @param backgroundColor The background color of the timeline.
+     * @throws IOException In the event of an error in the writing process, an IOException is thrown.
+     */
+    public void writeHeader(String timelineTitle, String titleFont, Color foregroundColor, Color backgroundColor) throws IOException {
+        append(String.valueOf(timelineTitle));
+        append('\n');
+        append(String.valueOf(titleFont));
+        append('\n');
+        appendColor(foregroundColor);
+        append(',');
+        appendColor(backgroundColor);
+        append('\n');
+    }
+
+    /**
+     * Writes the details of a given event to a single line in the destination file.
+     * @param event The event to be written.
+     * @throws IOException In the event of an error in the writing process, an IOException is thrown.
+     */
+    public void writeEvent(Event event) throws IOException {
+        append(event.name);
+        append(',');
+        append(event.isSpanOfTime ? '1' : '0');
+        append(',');
+        append(event.isAboveTimelineBar ? '1' : '0');
+        append(',');
+        append(event.fontName);
+        append(',');
+        appendColor(event.foregroundColor);
+        append(',');
+        appendColor(event.backgroundColor);
+        append(',');
+        append(formatTime(event.startingTime));
+        if (event.isSpanOfTime) {
+            append(',');
+            append(formatTime(event.endingTime));
+        }
+        append('\n');
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            encodeCharacters(true);
+            while (encoder.flush(bytes).isOverflow()) { writeBytes(); }
+            writeBytes();
+        }
+        finally { channel.close(); }
+    }
+
+
+    // Writing Methods
+
+    /**
+     * Appends the red, green and blue components of a color separated by commas.
+     */
+    private void appendColor(Color color) throws IOException {
+        appendInteger(color.getRed());
+        append(',');
+        appendInteger(color.getGreen());
+        append(',');
+        appendInteger(color.getBlue());
+    }
+
+    /**
+     * Appends the decimal digits of a non-negative integer.
+     */
+    private void appendInteger(int value) throws IOException {
+        if (value >= 10) { appendInteger(value / 10); }
+        append((char) ('0' + value % 10));
+    }
+
+    private void append(char character) throws IOException {
+        if (!characters.hasRemaining()) { encodeCharacters(false); }
+        characters.put(character);
+    }
+
+    private void append(String text) throws IOException {
+        int start = 0;
+        while (start < text.length()) {
+            if (!characters.hasRemaining()) { encodeCharacters(false); }
+            int end = Math.min(text.length(), start + characters.remaining());
+            characters.put(text, start, end);
+            start = end;
+        }
+    }
+
+    /**
+     * Encodes the buffered characters into the byte buffer, writing the byte buffer to the file whenever it fills.
+     * @param isEndOfInput Whether no further characters will be appended.
+     */
+    private void encodeCharacters(boolean isEndOfInput) throws IOException {
+        characters.flip();
+        CoderResult result = encoder.encode(characters, bytes, isEndOfInput);
+        while (result.isOverflow()) {
+            writeBytes();
+            result = encoder.encode(characters, bytes, isEndOfInput);
+        }
+        characters.compact();
+    }
+
+    private void writeBytes() throws IOException {
+        bytes.flip();
+        while (bytes.hasRemaining()) { channel.write(bytes); }
+        bytes.clear();
+    }
+
+
+    // Datetime Methods
+
+    /**
+     * Formats a time in the writer's datetime format, reusing the text of a recently formatted identical time where possible.
+     * @param time The time in milliseconds since the epoch.
+     * @return The formatted time.
+     */
+    private String formatTime(long time) {
+        int slot = Long.hashCode(time * 0x9E3779B97F4A7C15L) & (TIME_CACHE_SIZE - 1);
+        String text = cachedTimeTexts[slot];
+        if (text != null && cachedTimes[slot] == time) { return text; }
+
+        text = isDefaultDatetimeFormat ? formatDefaultFormatTime(time) : formatter.format(new Date(time));
+        cachedTimes[slot] = time;
+        cachedTimeTexts[slot] = text;
+        return text;
+    }
+
+    /**
+     * Formats a time as "HH:mm dd/MM/yyyy" from the writer's calendar, in the same manner as a SimpleDateFormat.
+     * @param time The time in milliseconds since the epoch.
+     * @return The formatted time.
+     */
+    private String formatDefaultFormatTime(long time) {
+        calendar.setTimeInMillis(time);
+        StringBuilder text = new StringBuilder(16);
+        appendPadded(text, calendar.get(Calendar.HOUR_OF_DAY), 2);
+        text.append(':');
+        appendPadded(text, calendar.get(Calendar.MINUTE), 2);
+        text.append(' ');
+        appendPadded(text, calendar.get(Calendar.DAY_OF_MONTH), 2);
+        text.append('/');
+        appendPadded(text, calendar.get(Calendar.MONTH) + 1, 2);
+        text.append('/');
+        appendPadded(text, calendar.get(Calendar.YEAR), 4);
+        return text.toString();
+    }
+
+    /**
+     * Appends a non-negative integer padded with leading zeroes to at least the given number of digits.
+     */
+    private void appendPadded(StringBuilder text, int value, int digits) {
+        String valueText = Integer.toString(value);
+        for (int i = valueText.length(); i < digits; i++) { text.append('0'); }
+        text.append(valueText);
+    }
+}
@@ -0,0 +1,529 @@
+/*
+Redstar Timeline Creator - A tool for easily creating visual timelines of events.
+Copyright (C) 2022 Xavier Mercerweiss
+
+This program is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+Redstar may be contacted for inquiry at: <redstar.software.official@gmail.com>
+ */
+
+package eventHandler;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only journal of the changes made to a timeline since its file was last written, kept beside the timeline file.
+ * Changes are buffered in memory and committed to the disk together on a short timer, so that each edit costs only the size of the change rather than a rewrite of the whole timeline.
+ * Every record carries a sequence number, which increases across every session in which the journal is used, allowing the journal to be compacted down to the changes made after a given save.
+ * Should the journal grow large between saves, it compacts itself down to the latest record of each event name. Only the journal is rewritten; the timeline file is written by saves alone.
+ * A journal touches its file only once opened or created, so it may be constructed, and changes recorded in it, while holding locks which must not wait on the disk.
+ */
+public class TimelineJournal implements Closeable {
+
+    /* Journal format:
+
+    Header: magic number (int), sequence number preceding that of every record in the journal (long)
+    Followed by any number of records, each given as:
+    Record length (int), followed by the record, followed by the CRC32 of the record (int)
+    Record: type (byte), sequence number (long), event name (string), and for additions:
+        isSpanOfTime (boolean), isAboveTimelineBar (boolean), font name (string),
+        foreground ARGB (int), background ARGB (int), starting time (long), ending time (long)
+    Each string is written as its length in bytes (varint) followed by its UTF-8 encoding.
+
+    A record which is incomplete or fails its checksum marks the end of the journal, as it can only be the result of an interrupted write.
+     */
+    private static final byte ADD_RECORD = 1;
+    private static final byte REMOVE_RECORD = 2;
+    private static final int JOURNAL_MAGIC = 0x544A4E4C;
+    private static final int HEADER_SIZE = Integer.BYTES + Long.BYTES;
+
+    private static final ScheduledExecutorService committer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Timeline journal committer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // The monitor of the journal guards only the buffered records and the sequence number, so that recording a change never waits on the disk.
+    // The file lock guards the journal file, and is taken before the monitor whenever both are held.
+    private final Object fileLock = new Object();
+
+    private final Path journalFile;
+    private final String datetimeFormat;
+    private ByteArrayOutputStream pendingRecords;
+    private final DataOutputStream recordWriter;
+    private final ByteArrayOutputStream record;
+    private final CRC32 recordChecksum;
+    private final CRC32 fileChecksum;
+    private FileChannel channel;
+    private ScheduledFuture<?> commitTask;
+    private volatile boolean isClosed;
+    private volatile long journalSize;
+    private volatile long compactionSize;
+    private long lastSequence;
+
+    private final long COMMIT_INTERVAL_IN_MILLISECONDS = 50;
+    private final long COMPACTION_THRESHOLD_IN_BYTES = 1024 * 1024;
+    public static final String JOURNAL_FILE_SUFFIX = ".journal";
+
+    /**
+     * Constructs a TimelineJournal for the given timeline file without touching its file. Changes recorded before the journal is opened or created are buffered until then.
+     * @param timelineFile The path to the timeline file.
+     * @param datetimeFormat The datetime format of replayed events.
+     */
+    public TimelineJournal(String timelineFile, String datetimeFormat) {
+        this.journalFile = Paths.get(timelineFile + JOURNAL_FILE_SUFFIX);
+        this.datetimeFormat = datetimeFormat;
+        this.pendingRecords = new ByteArrayOutputStream();
+        this.record = new ByteArrayOutputStream();
+        this.recordWriter = new DataOutputStream(record);
+        this.recordChecksum = new CRC32();
+        this.fileChecksum = new CRC32();
+        this.compactionSize = COMPACTION_THRESHOLD_IN_BYTES;
+    }
+
+
+    // Public Methods
+
+    /**
+     * Opens any existing journal of the timeline file so that it may be replayed, or creates an empty journal otherwise, then begins committing recorded changes to it.
+     * @throws IOException In the event the journal file cannot be opened or is not a journal, an IOException is thrown.
+     */
+    public void open() throws IOException {
+        synchronized (fileLock) {
+            channel = FileChannel.open(journalFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try { openJournal(); }
+            catch (IOException e) {
+                channel.close();
+                channel = null;
+                throw e;
+            }
+            startCommitting();
+        }
+    }
+
+    /**
+     * Creates an empty journal for the timeline file, discarding any stale journal the file already has, such as when the timeline file is about to be overwritten by an unrelated timeline.
+     * Changes recorded since the journal was constructed are then committed to it. Should the journal not be created, it is discarded and those changes are abandoned.
+     * Does nothing if the journal has already been closed.
+     * @throws IOException In the event of an error while creating the journal, an IOException is thrown.
+     */
+    public void create() throws IOException {
+        synchronized (fileLock) {
+            if (isClosed) { return; }
+            try {
+                channel = FileChannel.open(journalFile, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                        StandardOpenOption.READ, StandardOpenOption.WRITE);
+                writeHeader(channel);
+                channel.force(false);
+                journalSize = HEADER_SIZE;
+                commit();
+            }
+            catch (IOException e) {
+                discard();
+                throw e;
+            }
+            startCommitting();
+        }
+    }
+
+    /**
+     * Applies every complete record of the journal to the given handler in the order they were written, then discards any trailing incomplete record.
+     * Replaying a journal onto a timeline which already contains some of its changes yields the same timeline, as each record either replaces or removes an event by name.
+     * @param handler The handler to which the recorded changes are applied.
+     * @return The number of records applied.
+     * @throws IOException In the event of an error while reading the journal, an IOException is thrown.
+     */
+    public int replay(EventHandler handler) throws IOException {
+        synchronized (fileLock) {
+            ByteBuffer contents = readRecords();
+            int replayedRecords = 0;
+            for (byte[] recordBytes = nextRecord(contents); recordBytes != null; recordBytes = nextRecord(contents)) {
+                DataInputStream input = new DataInputStream(new ByteArrayInputStream(recordBytes));
+                byte type = input.readByte();
+                input.readLong();
+                String name = readString(input);
+                if (type == ADD_RECORD) { handler.addEventToTimeline(readEvent(name, input)); }
+                else { handler.remove(name); }
+                replayedRecords++;
+            }
+
+            channel.truncate(contents.position());
+            channel.position(contents.position());
+            journalSize = contents.position();
+            return replayedRecords;
+        }
+    }
+
+    /**
+     * Records the addition of an event, or its replacement of an event of the same name. Does nothing once the journal is closed.
+     * @param event The event added.
+     */
+    public synchronized void recordAddition(Event event) {
+        if (isClosed) { return; }
+        try {
+            beginRecord(ADD_RECORD, event.name);
+            recordWriter.writeBoolean(event.isSpanOfTime);
+            recordWriter.writeBoolean(event.isAboveTimelineBar);
+            writeString(recordWriter, event.fontName);
+            recordWriter.writeInt(event.foregroundColor.getRGB());
+            recordWriter.writeInt(event.backgroundColor.getRGB());
+            recordWriter.writeLong(event.startingTime);
+            recordWriter.writeLong(event.endingTime);
+            endRecord();
+        }
+        catch (IOException e) { throw new UncheckedIOException(e); }
+    }
+
+    /**
+     * Records the removal of an event. Does nothing once the journal is closed.
+     * @param eventName The name of the event removed.
+     */
+    public synchronized void recordRemoval(String eventName) {
+        if (isClosed) { return; }
+        try {
+            beginRecord(REMOVE_RECORD, eventName);
+            endRecord();
+        }
+        catch (IOException e) { throw new UncheckedIOException(e); }
+    }
+
+    /**
+     * Writes every buffered record to the journal file and forces it to the disk, then compacts the journal down to the latest record of each event name should it have grown large.
+     * Records already contained in the timeline file are only known once it is saved, so none are removed on that account. A failed compaction is not retried until the journal has grown further.
+     * Does nothing until the journal is opened or created.
+     * @throws IOException In the event of an error while writing the journal, an IOException is thrown.
+     */
+    public void commit() throws IOException {
+        synchronized (fileLock) {
+            writePendingRecords();
+            if (channel != null && journalSize > compactionSize) {
+                try { compactJournal(Long.MIN_VALUE); }
+                catch (IOException e) {
+                    compactionSize = journalSize + COMPACTION_THRESHOLD_IN_BYTES;
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns whether the journal has been closed, whether explicitly or because it could not be created, after which it records no further changes.
+     */
+    public boolean isClosed() { return isClosed; }
+
+    /**
+     * Returns the sequence number of the most recent record, including records not yet committed. Captured alongside a snapshot of the timeline to later compact the journal down to the changes made after the snapshot.
+     * @return The sequence number of the most recent record.
+     */
+    public synchronized long getLastSequence() { return lastSequence; }
+
+    /**
+     * Removes every record whose sequence number is no later than the given sequence number, as the timeline file now contains those changes. May be called after the journal is closed.
+     * Records superseded by a later record of the same event name are removed as well, as replaying the later record alone yields the same timeline.
+     * The remaining records are written to a new journal which then replaces the old one, so an interruption leaves at worst records which are already contained in the timeline file.
+     * The new journal carries the sequence number of the most recent record in its header, so sequence numbers continue to increase even once every record is removed.
+     * Changes may continue to be recorded during the compaction, and are committed to the new journal.
+     * @param savedSequence The sequence number of the most recent record when the timeline written to the timeline file was captured.
+     * @throws IOException In the event of an error while rewriting the journal, an IOException is thrown.
+     */
+    public void compact(long savedSequence) throws IOException {
+        synchronized (fileLock) { compactJournal(savedSequence); }
+    }
+
+    /**
+     * Commits every buffered record and closes the journal, leaving its file in place to be replayed. Records buffered by a journal which was never opened or created are abandoned.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (fileLock) {
+            if (isClosed) { return; }
+            isClosed = true;
+            if (commitTask != null) { commitTask.cancel(false); }
+            if (channel == null) { return; }
+            try { commit(); }
+            finally {
+                channel.close();
+                channel = null;
+            }
+        }
+    }
+
+    /**
+     * Closes the journal and deletes its file, abandoning every change it records.
+     * @throws IOException In the event the journal file cannot be deleted, an IOException is thrown.
+     */
+    public void discard() throws IOException {
+        synchronized (fileLock) {
+            synchronized (this) { pendingRecords.reset(); }
+            close();
+            Files.deleteIfExists(journalFile);
+        }
+    }
+
+
+    // Record Methods
+
+    /**
+     * Begins committing buffered records on a short timer. Must be called while holding the file lock, once the journal is open.
+     */
+    private void startCommitting() {
+        commitTask = committer.scheduleWithFixedDelay(this::commitInBackground,
+                COMMIT_INTERVAL_IN_MILLISECONDS, COMMIT_INTERVAL_IN_MILLISECONDS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Reads the header of the journal, or writes one if the journal is new, and finds the sequence number of its most recent record.
+     * Leaves the journal positioned at its end, ready for records to be appended.
+     * @throws IOException In the event of an error while reading, or if the file is not a journal, an IOException is thrown.
+     */
+    private void openJournal() throws IOException {
+        if (channel.size() < HEADER_SIZE) {
+            // Empty, or a journal whose creation was interrupted before any record could be written.
+            channel.truncate(0);
+            writeHeader(channel);
+            channel.force(false);
+            journalSize = HEADER_SIZE;
+            return;
+        }
+
+        ByteBuffer contents = readRecords();
+        for (byte[] recordBytes = nextRecord(contents); recordBytes != null; recordBytes = nextRecord(contents)) {
+            updateLastSequence(getSequence(recordBytes));
+        }
+        channel.position(channel.size());
+        journalSize = channel.size();
+    }
+
+    /**
+     * Writes every buffered record to the journal file and forces it to the disk. Must be called while holding the file lock. Does nothing until the journal is opened or created.
+     * The buffer is swapped for an empty one under the monitor, and written without it, so changes may continue to be recorded during the write.
+     * Should the write fail, the journal file is cut back to its previous end and the records are returned to the buffer, to be written by the next commit.
+     */
+    private void writePendingRecords() throws IOException {
+        if (channel == null) { return; }
+        ByteArrayOutputStream committedRecords;
+        synchronized (this) {
+            if (pendingRecords.size() == 0) { return; }
+            committedRecords = pendingRecords;
+            pendingRecords = new ByteArrayOutputStream();
+        }
+
+        long committedSize = channel.position();
+        try {
+            committedRecords.writeTo(Channels.newOutputStream(channel));
+            channel.force(false);
+            journalSize = channel.position();
+        }
+        catch (IOException e) {
+            try { channel.truncate(committedSize); }
+            catch (IOException ignored) { }
+            synchronized (this) {
+                pendingRecords.writeTo(committedRecords);
+                pendingRecords = committedRecords;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Rewrites the journal without the records contained in the timeline file or superseded by a later record of the same event name. Must be called while holding the file lock.
+     * The journal is allowed to grow to twice its compacted size before it next compacts itself, so that a journal of many distinct event names is not rewritten on every commit.
+     */
+    private void compactJournal(long savedSequence) throws IOException {
+        boolean isOpen = (channel != null);
+        if (isOpen) { writePendingRecords(); }
+        else if (Files.exists(journalFile)) { channel = FileChannel.open(journalFile, StandardOpenOption.READ, StandardOpenOption.WRITE); }
+        else { return; }
+
+        ArrayList<byte[]> records = new ArrayList<>();
+        HashMap<String, Integer> latestRecordIndices = new HashMap<>();
+        ByteBuffer contents = readRecords();
+        for (byte[] recordBytes = nextRecord(contents); recordBytes != null; recordBytes = nextRecord(contents)) {
+            latestRecordIndices.put(getEventName(recordBytes), records.size());
+            records.add(recordBytes);
+        }
+
+        ByteArrayOutputStream remainingRecords = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(remainingRecords);
+        for (int index = 0; index < records.size(); index++) {
+            byte[] recordBytes = records.get(index);
+            boolean isLatestRecordOfName = latestRecordIndices.get(getEventName(recordBytes)) == index;
+            if (isLatestRecordOfName && getSequence(recordBytes) > savedSequence) { writeFrame(output, recordBytes, fileChecksum); }
+        }
+
+        Path compactedFile = Paths.get(journalFile + ".compacting");
+        try (FileChannel compactedChannel = FileChannel.open(compactedFile, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            writeHeader(compactedChannel);
+            ByteBuffer buffer = ByteBuffer.wrap(remainingRecords.toByteArray());
+            while (buffer.hasRemaining()) { compactedChannel.write(buffer); }
+            compactedChannel.force(false);
+        }
+        channel.close();
+        channel = null;
+        Files.move(compactedFile, journalFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        journalSize = HEADER_SIZE + remainingRecords.size();
+        compactionSize = Math.max(COMPACTION_THRESHOLD_IN_BYTES, journalSize * 2);
+        if (isOpen) {
+            channel = FileChannel.open(journalFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            channel.position(channel.size());
+        }
+    }
+
+    /**
+     * Reads the whole journal, checking its header and taking the sequence number it carries as the earliest possible value of the last sequence number.
+     * Must be called while holding the file lock.
+     * @return The contents of the journal, positioned at its first record.
+     * @throws IOException In the event of an error while reading, or if the file is not a journal, an IOException is thrown.
+     */
+    private ByteBuffer readRecords() throws IOException {
+        ByteBuffer contents = ByteBuffer.allocate((int) channel.size());
+        channel.read(contents, 0);
+        contents.flip();
+        if (contents.remaining() < HEADER_SIZE || contents.getInt() != JOURNAL_MAGIC) {
+            throw new IOException("Not a timeline journal: " + journalFile);
+        }
+        updateLastSequence(contents.getLong());
+        return contents;
+    }
+
+    /**
+     * Writes the header of the journal at the start of the given file, leaving the file positioned after it.
+     */
+    private void writeHeader(FileChannel destination) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(JOURNAL_MAGIC).putLong(getLastSequence()).flip();
+        destination.position(0);
+        while (header.hasRemaining()) { destination.write(header); }
+    }
+
+    private synchronized void updateLastSequence(long sequence) { lastSequence = Math.max(lastSequence, sequence); }
+
+    private long getSequence(byte[] recordBytes) { return ByteBuffer.wrap(recordBytes, 1, Long.BYTES).getLong(); }
+
+    private String getEventName(byte[] recordBytes) throws IOException {
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(recordBytes, 1 + Long.BYTES, recordBytes.length - 1 - Long.BYTES));
+        return readString(input);
+    }
+
+    private void beginRecord(byte type, String eventName) throws IOException {
+        record.reset();
+        recordWriter.writeByte(type);
+        recordWriter.writeLong(++lastSequence);
+        writeString(recordWriter, eventName);
+    }
+
+    private void endRecord() throws IOException {
+        writeFrame(new DataOutputStream(pendingRecords), record.toByteArray(), recordChecksum);
+    }
+
+    /**
+     * Writes a record preceded by its length and followed by its checksum.
+     */
+    private void writeFrame(DataOutputStream output, byte[] recordBytes, CRC32 checksum) throws IOException {
+        checksum.reset();
+        checksum.update(recordBytes);
+        output.writeInt(recordBytes.length);
+        output.write(recordBytes);
+        output.writeInt((int) checksum.getValue());
+    }
+
+    /**
+     * Reads the next record of the journal, leaving the buffer positioned after it. Must be called while holding the file lock.
+     * @param contents The contents of the journal.
+     * @return The next record, or null if the journal contains no further complete and intact record, in which case the buffer is left positioned at its start.
+     */
+    private byte[] nextRecord(ByteBuffer contents) {
+        int start = contents.position();
+        if (contents.remaining() < Integer.BYTES) { return null; }
+        int length = contents.getInt();
+        if (length <= 0 || contents.remaining() < (long) length + Integer.BYTES) {
+            contents.position(start);
+            return null;
+        }
+        byte[] recordBytes = new byte[length];
+        contents.get(recordBytes);
+        fileChecksum.reset();
+        fileChecksum.update(recordBytes);
+        if (contents.getInt() != (int) fileChecksum.getValue()) {
+            contents.position(start);
+            return null;
+        }
+        return recordBytes;
+    }
+
+    private Event readEvent(String name, DataInputStream input) throws IOException {
+        boolean isSpanOfTime = input.readBoolean();
+        boolean isAboveTimelineBar = input.readBoolean();
+        String fontName = readString(input);
+        int foregroundARGB = input.readInt();
+        int backgroundARGB = input.readInt();
+        long startingTime = input.readLong();
+        long endingTime = input.readLong();
+        return new Event(name, startingTime, endingTime, isSpanOfTime, datetimeFormat, fontName,
+                EventFlyweights.getColor(foregroundARGB), EventFlyweights.getColor(backgroundARGB), isAboveTimelineBar);
+    }
+
+    /**
+     * Writes a string as its length in bytes followed by its UTF-8 encoding, allowing strings of any length.
+     */
+    private static void writeString(DataOutputStream output, String string) throws IOException {
+        byte[] encodedString = string.getBytes(StandardCharsets.UTF_8);
+        int length = encodedString.length;
+        while ((length & ~0x7F) != 0) {
+            output.writeByte((length & 0x7F) | 0x80);
+            length >>>= 7;
+        }
+        output.writeByte(length);
+        output.write(encodedString);
+    }
+
+    /**
+     * Reads a string written as its length in bytes, using 7 bits per byte with the high bit of each byte marking whether another byte follows, followed by its UTF-8 encoding.
+     * @throws IOException In the event the length is malformed or exceeds the rest of the record, an IOException is thrown.
+     */
+    private static String readString(DataInputStream input) throws IOException {
+        int length = 0;
+        for (int shift = 0; ; shift += 7) {
+            if (shift > 28) { throw new IOException("Malformed string length."); }
+            int currentByte = input.readUnsignedByte();
+            length |= (currentByte & 0x7F) << shift;
+            if ((currentByte & 0x80) == 0) { break; }
+        }
+        if (length < 0 || length > input.available()) { throw new IOException("Malformed string length."); }
+        byte[] encodedString = new byte[length];
+        input.readFully(encodedString);
+        return new String(encodedString, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Commits the buffered records from the committing thread.
+     */
+    private void commitInBackground() {
+        try { commit(); }
+        catch (IOException e) { e.printStackTrace(); }
+    }
+}
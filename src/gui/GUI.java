@@ -22,6 +22,7 @@ package gui;
 
 import eventHandler.Event;
 import eventHandler.EventHandler;
+import eventHandler.TimelineDelta;
 import gui.elements.PaletteElement;
 import gui.listeners.*;
 import gui.panels.EventPanel;
@@ -29,6 +30,7 @@ import gui.panels.TimelineDetailPanel;
 import gui.panels.TimelineImagePanel;
 import gui.panels.TimelineListPanel;
 import imageProcessor.ImageProcessor;
+import imageProcessor.TimelineTileRenderer;
 
 import javax.imageio.ImageIO;
 import javax.swing.*;
@@ -39,6 +41,7 @@ import java.awt.image.BufferedImage;
 import java.io.*;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 /**
  * An object used to interact with and facilitate communication between GUI elements. Directly interacts with the EventHandler and ImageProcessor.
@@ -201,6 +204,23 @@ public class GUI {
         saveAsItem.setForeground(palette.TEXT_COLOR);
         fileMenu.add(saveAsItem);
 
+        JMenu editMenu = new JMenu("Edit");
+        editMenu.setForeground(palette.TEXT_COLOR);
+        menuBar.add(editMenu);
+
+        JMenuItem undoItem = new JMenuItem("Undo       Ctrl+Z");
+        undoItem.addActionListener(new HistoryNavigator(this, false));
+        undoItem.setBackground(palette.MENU_BAR_COLOR);
+        undoItem.setForeground(palette.TEXT_COLOR);
+        editMenu.add(undoItem);
+
+        JMenuItem redoItem = new JMenuItem("Redo       Ctrl+Y");
+        redoItem.addActionListener(new HistoryNavigator(this, true));
+        redoItem.setBackground(palette.MENU_BAR_COLOR);
+        redoItem.setForeground(palette.TEXT_COLOR);
+        editMenu.add(redoItem);
+        editMenu.addMenuListener(new HistoryMenuUpdater(this, undoItem, redoItem));
+
         JMenu exportMenu = new JMenu("Export");
         exportMenu.setForeground(palette.TEXT_COLOR);
         menuBar.add(exportMenu);
@@ -263,6 +283,8 @@ public class GUI {
                 boolean performOperation = canOperationProceedDespiteUnsavedChanges();
                 if (performOperation) {
                     savePalettePreference();
+                    handler.closeJournal();
+                    handler.awaitPendingSaves();
                     System.exit(0);
                 }
             }
@@ -288,7 +310,10 @@ public class GUI {
      * Sets the handler utilized by the GUI to the given EventHandler.
      * @param handler The given EventHandler.
      */
-    public void setHandler(EventHandler handler) { this.handler = handler; }
+    public void setHandler(EventHandler handler) {
+        this.handler = handler;
+        handler.addChangeListener(this::applyTimelineChanges);
+    }
 
     /**
      * Sets the image processor utilized by the GUI to the given ImageProcessor.
@@ -296,14 +321,6 @@ public class GUI {
      */
     public void setImageProcessor(ImageProcessor imageProcessor) { this.imageProcessor = imageProcessor; }
 
-    /**
-     * Updates the panels which must consistently reflect the current timeline.
-     */
-    public void updateTimelinePanels() {
-        timelineListPanel.populate();
-        timelineImagePanel.populate();
-    }
-
     /**
      * Resets the timeline image's colors and font to their default values.
      */
@@ -339,7 +356,47 @@ public class GUI {
     /**
      * Marks that the user has made changes to the timeline.
      */
-    public void markUnsavedChanges() { handler.isTimelineSaved = false; }
+    public void markUnsavedChanges() { handler.setTimelineSaved(false); }
+
+    /**
+     * Marks that the title, title font or colors of the timeline have changed, so that the timeline image is redrawn once the current burst of changes ends.
+     */
+    public void markTimelineStyleChanged() {
+        if (handler != null) { handler.notifyStyleChanged(); }
+    }
+
+    /**
+     * Applies a set of changes to the timeline to the panels displaying it. The list of events is updated in place, and the image is redrawn.
+     * @param delta The changes made to the timeline.
+     */
+    private void applyTimelineChanges(TimelineDelta delta) {
+        if (delta.areEventsChanged()) { timelineListPanel.applyChanges(delta); }
+        timelineImagePanel.populate();
+    }
+
+    /**
+     * Reverts the most recent edit to the timeline which has not been undone.
+     */
+    public void undo() {
+        if (handler.undo()) { eventPanel.populate(null); }
+    }
+
+    /**
+     * Reapplies the most recently undone edit to the timeline.
+     */
+    public void redo() {
+        if (handler.redo()) { eventPanel.populate(null); }
+    }
+
+    /**
+     * Returns whether there is an edit to the timeline which can be undone.
+     */
+    public boolean canUndo() { return handler != null && handler.canUndo(); }
+
+    /**
+     * Returns whether there is an undone edit to the timeline which can be redone.
+     */
+    public boolean canRedo() { return handler != null && handler.canRedo(); }
 
     /**
      * Exports the current timeline image to a PNG file.
@@ -357,12 +414,13 @@ public class GUI {
      */
     public boolean canOperationProceedDespiteUnsavedChanges() {
         boolean performOperationOnDialogueClose;
-        if (!handler.isTimelineSaved) {
+        if (!handler.isTimelineSaved()) {
             int response = JOptionPane.showConfirmDialog(frame,
                     "Your timeline has unsaved changes. Save before exiting?",
                     "Unsaved Changes", JOptionPane.YES_NO_CANCEL_OPTION);
 
             if (response == JOptionPane.YES_OPTION) { handler.saveToFile(false); }
+            else if (response == JOptionPane.NO_OPTION) { handler.discardJournal(); }
             performOperationOnDialogueClose = (response == JOptionPane.YES_OPTION || response == JOptionPane.NO_OPTION);
 
         } else { performOperationOnDialogueClose = true; }
@@ -391,9 +449,9 @@ public class GUI {
     public EventPanel getEventPanel() { return eventPanel; }
 
     /**
-     * Returns all the events within the timeline as an ArrayList of Event objects.
+     * Returns all the events within the timeline as an unmodifiable list of Event objects in chronological order.
      */
-    public ArrayList<Event> getTimelineEvents() { return handler.getAllEvents(); }
+    public List<Event> getTimelineEvents() { return handler.getAllEvents(); }
 
     /**
      * Returns the title of the timeline.
@@ -420,4 +478,16 @@ public class GUI {
      */
     public BufferedImage getTimelineImage() { return imageProcessor.generateImage(); }
 
+    /**
+     * Writes an image representing the current timeline to a PNG file without holding the whole image in memory.
+     * @param filePath The path to the destination file.
+     * @throws IOException In the event of an error while writing the destination file, an IOException is thrown.
+     */
+    public void writeTimelineImage(String filePath) throws IOException { imageProcessor.writeImage(filePath); }
+
+    /**
+     * Prepares and returns a renderer of the current timeline, which renders the image one tile at a time.
+     */
+    public TimelineTileRenderer getTimelineTileRenderer() { return imageProcessor.createTileRenderer(); }
+
 }
@@ -155,6 +155,12 @@ public class DatetimeElement extends JPanel {
         yearField.setText(parsable[4]);
     }
 
+    /**
+     * Inputs a specific datetime into the DatetimeElement.
+     * @param datetimeInMilliseconds The datetime to be input into the DatetimeElement, in milliseconds since the epoch.
+     */
+    public void setDatetime(long datetimeInMilliseconds) { setDatetime(new Date(datetimeInMilliseconds)); }
+
     /**
      * Returns the datetime current input into the DatetimeElement.
      * @return A Date object of the input datetime.
@@ -69,6 +69,7 @@ public class EventAdder implements ActionListener {
             Date endingTime = null;
             endingTime = inputPanel.getEventEndingTime();
             handler.add(eventName, startingTime, endingTime, fontName, foregroundColor, backgroundColor, isAboveBar);
+            handler.recordEdit(eventName, preExistingEvent);
         }
         catch (Exception ex) {
             ex.printStackTrace();
@@ -76,7 +77,6 @@ public class EventAdder implements ActionListener {
             if (preExistingEvent != null) { handler.addEventToTimeline(preExistingEvent); }
             else {handler.remove(eventName);}
         }
-        gui.updateTimelinePanels();
     }
 
 }
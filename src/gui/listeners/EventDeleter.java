@@ -20,6 +20,7 @@ Redstar may be contacted for inquiry at: <redstar.software.official@gmail.com>
 
 package gui.listeners;
 
+import eventHandler.Event;
 import eventHandler.EventHandler;
 import gui.GUI;
 import gui.panels.EventPanel;
@@ -53,8 +54,9 @@ public class EventDeleter implements ActionListener {
     @Override
     public void actionPerformed(ActionEvent e) {
         String name = inputPanel.getEventName();
+        Event deletedEvent = handler.get(name);
         handler.remove(name);
-        gui.updateTimelinePanels();
+        handler.recordEdit(name, deletedEvent);
         inputPanel.populate(null);
     }
 }
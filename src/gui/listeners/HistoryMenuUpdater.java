@@ -0,0 +1,61 @@
+/*
+Redstar Timeline Creator - A tool for easily creating visual timelines of events.
+Copyright (C) 2022 Xavier Mercerweiss
+
+This program is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+Redstar may be contacted for inquiry at: <redstar.software.official@gmail.com>
+ */
+package gui.listeners;
+
+import gui.GUI;
+
+import javax.swing.*;
+import javax.swing.event.MenuEvent;
+import javax.swing.event.MenuListener;
+
+/**
+ * A MenuListener used to enable the undo and redo items of a menu only while there is an edit to undo or redo.
+ */
+public class HistoryMenuUpdater implements MenuListener {
+
+    private final GUI gui;
+
+    private final JMenuItem undoItem;
+    private final JMenuItem redoItem;
+
+    /**
+     * Constructs a HistoryMenuUpdater associated with a given GUI and the undo and redo items it updates.
+     * @param gui The GUI associated with the HistoryMenuUpdater.
+     * @param undoItem The menu item which undoes the most recent edit.
+     * @param redoItem The menu item which redoes the most recently undone edit.
+     */
+    public HistoryMenuUpdater(GUI gui, JMenuItem undoItem, JMenuItem redoItem) {
+        this.gui = gui;
+        this.undoItem = undoItem;
+        this.redoItem = redoItem;
+    }
+
+    @Override
+    public void menuSelected(MenuEvent e) {
+        undoItem.setEnabled(gui.canUndo());
+        redoItem.setEnabled(gui.canRedo());
+    }
+
+    @Override
+    public void menuDeselected(MenuEvent e) { }
+
+    @Override
+    public void menuCanceled(MenuEvent e) { }
+}
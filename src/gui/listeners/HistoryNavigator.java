@@ -0,0 +1,52 @@
+/*
+Redstar Timeline Creator - A tool for easily creating visual timelines of events.
+Copyright (C) 2022 Xavier Mercerweiss
+
+This program is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+Redstar may be contacted for inquiry at: <redstar.software.official@gmail.com>
+ */
+
+package gui.listeners;
+
+import gui.GUI;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+
+/**
+ * An ActionListener used to undo or redo the most recent edit to the timeline.
+ */
+public class HistoryNavigator implements ActionListener {
+
+    private final GUI gui;
+
+    private final boolean isRedo;
+
+    /**
+     * Constructs a HistoryNavigator associated with a given GUI and instructed whether to undo or redo edits on operation.
+     * @param gui The GUI associated with the HistoryNavigator.
+     * @param isRedo Whether the HistoryNavigator redoes the most recently undone edit rather than undoing the most recent edit.
+     */
+    public HistoryNavigator(GUI gui, boolean isRedo) {
+        this.gui = gui;
+        this.isRedo = isRedo;
+    }
+
+    @Override
+    public void actionPerformed(ActionEvent e) {
+        if (isRedo) { gui.redo(); }
+        else { gui.undo(); }
+    }
+}
@@ -55,6 +55,8 @@ public class KeyboardShortcutListener implements KeyListener {
                 case KeyEvent.VK_S: saveToFile(); break;
                 case KeyEvent.VK_D: gui.exportImage(); break;
                 case KeyEvent.VK_F: gui.exportForeground(); break;
+                case KeyEvent.VK_Z: gui.undo(); break;
+                case KeyEvent.VK_Y: gui.redo(); break;
             }
         }
         else if (isKeyControl(e)) { isControlHeld = true; }
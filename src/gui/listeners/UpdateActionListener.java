@@ -44,6 +44,6 @@ public class UpdateActionListener implements ActionListener {
     @Override
     public void actionPerformed(ActionEvent e) {
         gui.markUnsavedChanges();
-        gui.updateTimelinePanels();
+        gui.markTimelineStyleChanged();
     }
 }
@@ -48,7 +48,7 @@ public class UpdateFocusListener implements FocusListener {
      * Updates the GUI and marks that the user has made a change to the timeline.
      */
     private void updateGUI() {
-        gui.updateTimelinePanels();
+        gui.markTimelineStyleChanged();
         gui.markUnsavedChanges();
     }
 }
@@ -203,7 +203,7 @@ public class TimelineDetailPanel extends JPanel {
         foregroundColor = color;
         foregroundColorButton.setBackground(color);
         foregroundColorButton.setForeground(getVisibleCaptionColor(color));
-        gui.updateTimelinePanels();
+        gui.markTimelineStyleChanged();
     }
 
     /**
@@ -213,7 +213,7 @@ public class TimelineDetailPanel extends JPanel {
         backgroundColor = color;
         backgroundColorButton.setBackground(color);
         backgroundColorButton.setForeground(getVisibleCaptionColor(color));
-        gui.updateTimelinePanels();
+        gui.markTimelineStyleChanged();
     }
 
     /**
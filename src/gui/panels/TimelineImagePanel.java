@@ -21,24 +21,28 @@ Redstar may be contacted for inquiry at: <redstar.software.official@gmail.com>
 package gui.panels;
 
 import gui.GUI;
+import imageProcessor.TimelineTileRenderer;
 
-import javax.imageio.ImageIO;
 import javax.swing.*;
 import javax.swing.border.Border;
 import javax.swing.border.LineBorder;
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.io.File;
 import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
- * A panel used to display the current timeline image.
+ * A panel used to display the current timeline image. The image is rendered in tiles as they are scrolled into view, and only the most recently viewed tiles are kept.
  */
 public class TimelineImagePanel extends JPanel {
 
     private final GUI gui;
 
-    private BufferedImage image;
+    private TimelineTileRenderer renderer;
+    private final LinkedHashMap<Integer, BufferedImage> tiles;
+
+    private final int MAXIMUM_CACHED_TILES = 48;
 
 
     // Initialization Methods
@@ -49,6 +53,10 @@ public class TimelineImagePanel extends JPanel {
      */
     public TimelineImagePanel(GUI gui) {
         this.gui = gui;
+        this.tiles = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, BufferedImage> eldest) { return size() > MAXIMUM_CACHED_TILES; }
+        };
         initialize();
     }
 
@@ -73,13 +81,56 @@ public class TimelineImagePanel extends JPanel {
     }
 
     /**
-     * Generates and displays the current timeline image.
+     * Prepares the current timeline image to be displayed, discarding the tiles of the previous image.
      */
     private void initializeImage() {
-        image = gui.getTimelineImage();
-        JLabel imageLabel = new JLabel(new ImageIcon(image));
-        imageLabel.setPreferredSize(new Dimension(image.getWidth(), image.getHeight()));
-        this.add(imageLabel);
+        renderer = gui.getTimelineTileRenderer();
+        tiles.clear();
+        Insets insets = this.getInsets();
+        this.setPreferredSize(new Dimension(renderer.getImageWidth() + insets.left + insets.right,
+                renderer.getImageHeight() + insets.top + insets.bottom));
+    }
+
+    /**
+     * Paints the tiles of the timeline image which intersect the area being repainted, rendering any which are not cached.
+     * @param graphics The Graphics object used to paint the panel.
+     */
+    @Override
+    protected void paintComponent(Graphics graphics) {
+        super.paintComponent(graphics);
+        if (renderer == null) { return; }
+
+        Insets insets = this.getInsets();
+        int tileSize = renderer.getTileSize();
+        Rectangle clip = graphics.getClipBounds();
+        if (clip == null) { clip = new Rectangle(0, 0, this.getWidth(), this.getHeight()); }
+
+        int firstColumn = Math.max((clip.x - insets.left) / tileSize, 0);
+        int lastColumn = Math.min((clip.x + clip.width - insets.left) / tileSize, renderer.getColumnCount() - 1);
+        int firstRow = Math.max((clip.y - insets.top) / tileSize, 0);
+        int lastRow = Math.min((clip.y + clip.height - insets.top) / tileSize, renderer.getRowCount() - 1);
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                BufferedImage tile = getTile(column, row);
+                graphics.drawImage(tile, insets.left + (column * tileSize), insets.top + (row * tileSize), null);
+            }
+        }
+    }
+
+    /**
+     * Returns a tile of the current timeline image, rendering it if it is not cached.
+     * @param column The column of the tile.
+     * @param row The row of the tile.
+     * @return The tile.
+     */
+    private BufferedImage getTile(int column, int row) {
+        int key = (row * renderer.getColumnCount()) + column;
+        BufferedImage tile = tiles.get(key);
+        if (tile == null) {
+            tile = renderer.renderTile(column, row);
+            tiles.put(key, tile);
+        }
+        return tile;
     }
 
 
@@ -91,10 +142,8 @@ public class TimelineImagePanel extends JPanel {
     public void saveForegroundToFile() {
         Color backgroundColor = gui.getTimelineBackgroundColor();
         gui.setTimelineBackgroundColor(null);
-        image = gui.getTimelineImage();
         saveImageToFile();
         gui.setTimelineBackgroundColor(backgroundColor);
-        image = gui.getTimelineImage();
     }
 
     /**
@@ -106,8 +155,7 @@ public class TimelineImagePanel extends JPanel {
             assert destination != null;
             String extension = getFileExtension(destination);
             if (extension == null || !extension.equals(".png")) { destination += ".png"; }
-            File imageFile = new File(destination);
-            ImageIO.write(image, "png", imageFile);
+            gui.writeTimelineImage(destination);
         }
         catch (IOException e) { gui.showErrorMessage("Invalid destination file."); }
         catch (Exception e) { e.printStackTrace(); }
@@ -21,6 +21,8 @@ Redstar may be contacted for inquiry at: <redstar.software.official@gmail.com>
 package gui.panels;
 
 import eventHandler.Event;
+import eventHandler.EventSnapshot;
+import eventHandler.TimelineDelta;
 import gui.GUI;
 import gui.listeners.EventSelector;
 
@@ -29,6 +31,9 @@ import javax.swing.border.Border;
 import javax.swing.border.LineBorder;
 import java.awt.*;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
 
 /**
  * A panel used to list all events in the current timeline in chronological order. Allows each event to be selected and altered.
@@ -36,6 +41,7 @@ import java.util.ArrayList;
 public class TimelineListPanel extends JPanel {
 
     private final GUI gui;
+    private final HashMap<String, JButton> eventButtonsByName = new HashMap<>();
 
     private final int BUTTON_WIDTH = 350;
     private final int BUTTON_HEIGHT = 25;
@@ -69,21 +75,61 @@ public class TimelineListPanel extends JPanel {
     /**
      * Initializes the contents of the TimelineListPanel.
      */
-    public void populate() {
+    public void populate() { populate((gui.getHandler() != null) ? gui.getTimelineEvents() : List.of()); }
+
+    /**
+     * Initializes the contents of the TimelineListPanel with the given events.
+     * @param events The events of the timeline in chronological order.
+     */
+    private void populate(List<Event> events) {
         this.removeAll();
+        eventButtonsByName.clear();
         this.setBackground(gui.palette.GUI_BACKGROUND_COLOR);
-        if (gui.getHandler() != null) { updateTimeline(); }
+        updateTimeline(events);
         initializeNewEventButton();
         this.revalidate();
         this.repaint();
     }
 
+    /**
+     * Updates the list to reflect the given changes to the timeline, replacing only the buttons of changed events. Bulk changes rebuild the entire list.
+     * Events are placed by their position within the delta's own snapshot, as the timeline may already have changed again since the delta was taken.
+     * @param delta The changes made to the timeline.
+     */
+    public void applyChanges(TimelineDelta delta) {
+        EventSnapshot snapshot = delta.getSnapshot();
+        if (delta.isBulkChange()) {
+            populate(snapshot.getEvents());
+            return;
+        }
+
+        for (Event event:delta.getRemovedEvents()) { removeEventButton(event.name); }
+        for (Event event:delta.getReplacingEvents()) { removeEventButton(event.name); }
+
+        ArrayList<Event> insertedEvents = new ArrayList<>(delta.getAddedEvents());
+        insertedEvents.addAll(delta.getReplacingEvents());
+        insertedEvents.removeIf(event -> snapshot.indexOf(event) < 0);
+        insertedEvents.sort(Comparator.comparingInt(snapshot::indexOf));
+        // Buttons are inserted from the earliest event onwards, so each event's position in the timeline is also its position in the list when inserted.
+
+        EventPanel eventPanel = gui.getEventPanel();
+        for (Event event:insertedEvents) {
+            removeEventButton(event.name);
+            int index = Math.min(snapshot.indexOf(event), eventButtonsByName.size());
+            this.add(createEventButton(event, eventPanel), index);
+        }
+
+        this.setPreferredSize(new Dimension(BUTTON_WIDTH, (snapshot.size() + 1) * BUTTON_HEIGHT));
+        this.revalidate();
+        this.repaint();
+    }
+
     /**
      * Creates an EventSelector button for each event in the timeline in chronological order, with the earliest events at the top of the list.
+     * @param events The events of the timeline in chronological order.
      */
-    private void updateTimeline() {
+    private void updateTimeline(List<Event> events) {
         EventPanel eventPanel = gui.getEventPanel();
-        ArrayList<Event> events = gui.getTimelineEvents();
         this.setPreferredSize(new Dimension(BUTTON_WIDTH, (events.size() + 1) * BUTTON_HEIGHT));
         for (Event event:events) { initializeEventButton(event, eventPanel); }
     }
@@ -107,14 +153,32 @@ public class TimelineListPanel extends JPanel {
      * @param event The event associated with the button.
      * @param eventPanel The eventPanel updated by the EventSelector button.
      */
-    private void initializeEventButton(Event event, EventPanel eventPanel) {
+    private void initializeEventButton(Event event, EventPanel eventPanel) { this.add(createEventButton(event, eventPanel)); }
+
+    /**
+     * Creates an EventSelector button associated with a specific event without adding it to the list.
+     * @param event The event associated with the button.
+     * @param eventPanel The eventPanel updated by the EventSelector button.
+     * @return The created button.
+     */
+    private JButton createEventButton(Event event, EventPanel eventPanel) {
         JButton eventButton = new JButton(event.toString());
         eventButton.addActionListener(new EventSelector(event, eventPanel));
         eventButton.setPreferredSize(BUTTON_SIZE);
         eventButton.setFocusable(false);
         eventButton.setBackground(gui.palette.GUI_BACKGROUND_COLOR);
         eventButton.setForeground(gui.palette.TEXT_COLOR);
-        this.add(eventButton);
+        eventButtonsByName.put(event.name, eventButton);
+        return eventButton;
+    }
+
+    /**
+     * Removes the button of the event bearing the given name from the list if present.
+     * @param eventName The name of the event.
+     */
+    private void removeEventButton(String eventName) {
+        JButton eventButton = eventButtonsByName.remove(eventName);
+        if (eventButton != null) { this.remove(eventButton); }
     }
 
 }
@@ -0,0 +1,80 @@
+/*
+Redstar Timeline Creator - A tool for easily creating visual timelines of events.
+Copyright (C) 2022 Xavier Mercerweiss
+
+This program is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+Redstar may be contacted for inquiry at: <redstar.software.official@gmail.com>
+ */
+
+package imageProcessor;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+
+/**
+ * An object used to arrange horizontal intervals into lanes such that no 2 intervals within a lane overlap, using as few lanes as possible.
+ * Intervals are swept from left to right, each taking the lowest lane freed by an interval which ends at or before its start, for O(n log n) time overall.
+ */
+public class LaneAllocator {
+
+    private int laneCount;
+
+
+    // Public Methods
+
+    /**
+     * Assigns each interval the lowest lane free across its entire width at the moment it is reached by the sweep.
+     * Intervals starting at the same position are assigned in the order they are given.
+     * @param starts The start of each interval, inclusive.
+     * @param ends The end of each interval, exclusive.
+     * @return The lane of each interval, numbered from 0.
+     */
+    public int[] allocateLanes(int[] starts, int[] ends) {
+        int count = starts.length;
+        long[] intervalsByStart = new long[count];
+        for (int i = 0; i < count; i++) { intervalsByStart[i] = ((long) starts[i] << 32) | i; }
+        Arrays.sort(intervalsByStart);
+        // Each interval is packed with its start in the high bits and its index in the low bits, so sorting orders intervals by start and then by index.
+
+        int[] lanes = new int[count];
+        PriorityQueue<Long> occupiedLanesByEnd = new PriorityQueue<>();
+        TreeSet<Integer> freeLanes = new TreeSet<>();
+        laneCount = 0;
+
+        for (long packedInterval:intervalsByStart) {
+            int index = (int) packedInterval;
+            int start = starts[index];
+            while (!occupiedLanesByEnd.isEmpty() && (int) (occupiedLanesByEnd.peek() >> 32) <= start) {
+                freeLanes.add((int) (long) occupiedLanesByEnd.poll());
+            }
+
+            Integer freeLane = freeLanes.pollFirst();
+            int lane = (freeLane != null) ? freeLane : laneCount++;
+            lanes[index] = lane;
+            occupiedLanesByEnd.add(((long) ends[index] << 32) | lane);
+        }
+        return lanes;
+    }
+
+
+    // Information Requests
+
+    /**
+     * Returns the number of lanes used by the most recent allocation.
+     */
+    public int getLaneCount() { return laneCount; }
+
+}
@@ -0,0 +1,196 @@
+/*
+Redstar Timeline Creator - A tool for easily creating visual timelines of events.
+Copyright (C) 2022 Xavier Mercerweiss
+
+This program is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+Redstar may be contacted for inquiry at: <redstar.software.official@gmail.com>
+ */
+
+package imageProcessor;
+
+import java.awt.image.BufferedImage;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * A writer which encodes an image to a PNG file as bands of rows are supplied, so that the whole image is never held in memory.
+ * Pixels are written as 8-bit RGBA and deflated into IDAT chunks, which are written to the file as they fill. Not thread-safe.
+ * Rows are left unfiltered, as the large areas of flat color in timeline images deflate better unfiltered than with any PNG filter.
+ */
+public class StreamingPngWriter implements Closeable {
+
+    private final FileChannel channel;
+    private final Deflater deflater;
+    private final CRC32 checksum;
+    private final ByteBuffer chunk;
+    private final byte[] deflated;
+    private int deflatedLength;
+
+    private final int width;
+    private final int height;
+    private int rowsWritten;
+
+    private final int[] pixels;
+    private final byte[] row;
+
+    private final int BYTES_PER_PIXEL = 4;
+    private final int COMPRESSION_LEVEL = 4;
+    // Matches the default of the ImageIO PNG writer, which compresses timeline images almost as well as higher levels in far less time.
+    private final int CHUNK_DATA_SIZE = 1 << 16;
+    private final int CHUNK_OVERHEAD = 12;
+    private final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private final byte NO_FILTER = 0;
+
+    /**
+     * Constructs a StreamingPngWriter which writes an image of the given size to the given file, replacing any existing contents. The PNG header is written immediately.
+     * @param filePath The path to the destination file.
+     * @param width The width of the image in pixels.
+     * @param height The height of the image in pixels.
+     * @throws IOException In the event the destination file cannot be opened or written, an IOException is thrown.
+     */
+    public StreamingPngWriter(String filePath, int width, int height) throws IOException {
+        this.channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        this.deflater = new Deflater(COMPRESSION_LEVEL);
+        this.checksum = new CRC32();
+        this.chunk = ByteBuffer.allocateDirect(CHUNK_DATA_SIZE + CHUNK_OVERHEAD);
+        this.deflated = new byte[CHUNK_DATA_SIZE];
+
+        this.width = width;
+        this.height = height;
+        this.pixels = new int[width];
+        this.row = new byte[(width * BYTES_PER_PIXEL) + 1];
+
+        try { writeHeader(); }
+        catch (IOException e) {
+            deflater.end();
+            channel.close();
+            throw e;
+        }
+    }
+
+
+    // Public Methods
+
+    /**
+     * Encodes every row of the given band of the image, which follows directly on from the rows already written.
+     * @param band The band of rows, as wide as the image and of type TYPE_INT_ARGB.
+     * @throws IOException In the event of an error while writing to the destination file, or if the band does not fit the remaining rows of the image, an IOException is thrown.
+     */
+    public void writeRows(BufferedImage band) throws IOException {
+        if (band.getWidth() != width || rowsWritten + band.getHeight() > height) {
+            throw new IOException("Band does not fit the remaining rows of the image.");
+        }
+        for (int y = 0; y < band.getHeight(); y++) {
+            band.getRaster().getDataElements(0, y, width, 1, pixels);
+            writeRow();
+        }
+    }
+
+    /**
+     * Finishes the compressed image data, writes the end of the PNG file and closes it.
+     * @throws IOException In the event of an error while writing, or if fewer rows were written than the height of the image, an IOException is thrown.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (channel.isOpen()) {
+                if (rowsWritten != height) { throw new IOException("Only " + rowsWritten + " of " + height + " rows were written."); }
+                deflater.finish();
+                while (!deflater.finished()) { deflate(); }
+                if (deflatedLength > 0) { writeChunk("IDAT", deflated, deflatedLength); }
+                writeChunk("IEND", null, 0);
+            }
+        }
+        finally {
+            deflater.end();
+            channel.close();
+        }
+    }
+
+
+    // Encoding Methods
+
+    /**
+     * Writes the PNG signature and the IHDR chunk describing the image.
+     */
+    private void writeHeader() throws IOException {
+        channel.write(ByteBuffer.wrap(PNG_SIGNATURE));
+        ByteBuffer header = ByteBuffer.allocate(13);
+        header.putInt(width).putInt(height);
+        header.put((byte) 8);  // Bit depth
+        header.put((byte) 6);  // Color type: RGBA
+        header.put((byte) 0);  // Compression method: deflate
+        header.put((byte) 0);  // Filter method: adaptive, with each row's filter given by its first byte
+        header.put((byte) 0);  // Interlace method: none
+        writeChunk("IHDR", header.array(), 13);
+    }
+
+    /**
+     * Converts the pixels of the current row to RGBA bytes, preceded by the type of its filter, and feeds them to the deflater.
+     */
+    private void writeRow() throws IOException {
+        row[0] = NO_FILTER;
+        for (int x = 0, i = 1; x < width; x++) {
+            int pixel = pixels[x];
+            row[i++] = (byte) (pixel >>> 16);
+            row[i++] = (byte) (pixel >>> 8);
+            row[i++] = (byte) pixel;
+            row[i++] = (byte) (pixel >>> 24);
+        }
+        deflater.setInput(row);
+        while (!deflater.needsInput()) { deflate(); }
+        rowsWritten++;
+    }
+
+    /**
+     * Collects the next output of the deflater, writing the collected output to the file as an IDAT chunk once a full chunk is collected.
+     */
+    private void deflate() throws IOException {
+        deflatedLength += deflater.deflate(deflated, deflatedLength, deflated.length - deflatedLength);
+        if (deflatedLength == deflated.length) {
+            writeChunk("IDAT", deflated, deflatedLength);
+            deflatedLength = 0;
+        }
+    }
+
+    /**
+     * Writes a single chunk to the file, followed by the CRC of its type and data.
+     * @param type The 4-letter type of the chunk.
+     * @param data The data of the chunk. May be null if the chunk is empty.
+     * @param length The length of the data.
+     */
+    private void writeChunk(String type, byte[] data, int length) throws IOException {
+        byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        checksum.reset();
+        checksum.update(typeBytes);
+        if (data != null) { checksum.update(data, 0, length); }
+
+        chunk.clear();
+        chunk.putInt(length);
+        chunk.put(typeBytes);
+        if (data != null) { chunk.put(data, 0, length); }
+        chunk.putInt((int) checksum.getValue());
+        chunk.flip();
+        while (chunk.hasRemaining()) { channel.write(chunk); }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+Redstar Timeline Creator - A tool for easily creating visual timelines of events.
+Copyright (C) 2022 Xavier Mercerweiss
+
+This program is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+Redstar may be contacted for inquiry at: <redstar.software.official@gmail.com>
+ */
+
+package imageProcessor;
+
+import java.awt.*;
+import java.awt.font.FontRenderContext;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A service used to measure the text drawn on timeline images without a live Graphics object or display.
+ * Text is measured from the font and a FontRenderContext alone, falling back to a TextLayout for text requiring complex shaping.
+ * Fonts are identified by name, style and size, and each is constructed once. The width of every measured label is kept per font.
+ * No FontMetrics are cached, as none are needed: a FontMetrics only pairs a font with a rendering context, and the cached font and the shared FontRenderContext yield the same measurements without a Graphics object.
+ * All caches evict their least recently used entries once full, and may be shared between threads.
+ */
+public class TextMeasurer {
+
+    private final FontRenderContext fontRenderContext;
+    private final LinkedHashMap<String, MeasuredFont> measuredFonts;
+
+    private final int MAXIMUM_CACHED_FONTS = 64;
+    private final int MAXIMUM_CACHED_WIDTHS_PER_FONT = 1 << 17;
+
+    /**
+     * A font along with the widths of the labels measured in it.
+     */
+    private class MeasuredFont {
+        final Font font;
+        final LinkedHashMap<String, Integer> textWidths;
+
+        MeasuredFont(Font font) {
+            this.font = font;
+            this.textWidths = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest) { return size() > MAXIMUM_CACHED_WIDTHS_PER_FONT; }
+            };
+        }
+    }
+
+
+    // Initialization Methods
+
+    /**
+     * Constructs a TextMeasurer which measures text as it would be drawn with the given rendering context.
+     * @param fontRenderContext The context of the Graphics object to which the text is drawn.
+     */
+    public TextMeasurer(FontRenderContext fontRenderContext) {
+        this.fontRenderContext = fontRenderContext;
+        this.measuredFonts = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, MeasuredFont> eldest) { return size() > MAXIMUM_CACHED_FONTS; }
+        };
+    }
+
+
+    // Public Methods
+
+    /**
+     * Returns the font of the given specifications, constructing it only if it is not already cached.
+     * @param fontName The name of the font.
+     * @param style The style of the font, as given by the constants of the Font class.
+     * @param size The point size of the font.
+     * @return The font of the given specifications.
+     */
+    public Font getFont(String fontName, int style, int size) { return getMeasuredFont(fontName, style, size).font; }
+
+    /**
+     * Calculates the width of a string of text written with a given font, reusing the width of an identical label measured before.
+     * @param text The string of text to be written.
+     * @param font The font used to write the text.
+     * @return The width of the text written in the given font.
+     */
+    public int getTextWidth(String text, Font font) {
+        MeasuredFont measuredFont = getMeasuredFont(font.getName(), font.getStyle(), font.getSize());
+        synchronized (measuredFont) {
+            Integer width = measuredFont.textWidths.get(text);
+            if (width == null) {
+                width = (int) (0.5 + font.getStringBounds(text, fontRenderContext).getWidth());
+                // Rounded identically to FontMetrics.stringWidth, so that measurements match those of a Graphics object with the same context.
+                measuredFont.textWidths.put(text, width);
+            }
+            return width;
+        }
+    }
+
+
+    // Cache Methods
+
+    /**
+     * Returns the cached font of the given specifications, constructing it if absent.
+     */
+    private synchronized MeasuredFont getMeasuredFont(String fontName, int style, int size) {
+        String key = fontName + '\u0000' + style + '\u0000' + size;
+        MeasuredFont measuredFont = measuredFonts.get(key);
+        if (measuredFont == null) {
+            measuredFont = new MeasuredFont(new Font(fontName, style, size));
+            measuredFonts.put(key, measuredFont);
+        }
+        return measuredFont;
+    }
+}
@@ -0,0 +1,420 @@
+/*
+Redstar Timeline Creator - A tool for easily creating visual timelines of events.
+Copyright (C) 2022 Xavier Mercerweiss
+
+This program is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+Redstar may be contacted for inquiry at: <redstar.software.official@gmail.com>
+ */
+
+package imageProcessor;
+
+import eventHandler.ColumnarEventStore;
+import eventHandler.EventSnapshot;
+import imageProcessor.wrappers.RectWrapper;
+import imageProcessor.wrappers.TextWrapper;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static java.lang.Math.abs;
+
+
+/**
+ * The arrangement of every visual element of a timeline image, calculated without a Graphics object or raster.
+ * Text is measured headlessly, so a layout may be calculated on any thread before the image it describes is allocated.
+ * A layout depends only on the events of the timeline, and not on its title, title font or colors, so it may be reused until the events change.
+ * The events are read from the column-wise copy carried by the snapshot, so laying out a timeline never reads Event objects.
+ * The vertical position of each event element is stored relative to the timeline "bar", whose final position is given by the layout.
+ */
+public class TimelineLayout {
+
+    private final EventSnapshot snapshot;
+    private final ColumnarEventStore columns;
+    private final TextMeasurer textMeasurer;
+    private final LaneAllocator laneAllocator = new LaneAllocator();
+
+    private long startingTimeInMilliseconds;
+    private long millisecondsPerPixel;
+    private long timelineLengthInMilliseconds;
+    private int imageWidth;
+    private int imageHeight;
+    private int timelineBarYPosition;
+    private int timelineBarHeight;
+    private int eventHeight;
+    private int shortEventHeight;
+    private int eventTextSize;
+    private int eventTextOffset;
+    private int eventStemWidth;
+    private int roundedRectArc;
+    private int titleYPosition;
+    private int titleFontSize;
+
+    private int laneCountAboveTimelineBar;
+    private int laneCountBelowTimelineBar;
+    private final ArrayList<RectWrapper> rects = new ArrayList<>();
+    private final ArrayList<TextWrapper> text = new ArrayList<>();
+
+    private final int DEFAULT_IMAGE_WIDTH = 1265;
+    private final int DEFAULT_IMAGE_HEIGHT = 970;
+    private final int DEFAULT_EVENT_HEIGHT = 35;
+    private final long MILLISECONDS_IN_A_DAY = 86400000L;
+
+    private final int[] TIMELINE_DENSITIES_IN_DAYS = {3650000, 365000, 36500, 18250, 9125, 3650, 1825, 365, 186, 93, 31, 7, 3, 1};
+    // 10 millennia, 1 millennium, 1 century, 50 years, 25 years, 1 decade, 5 years, 1 year, 6 months, 3 months, 1 month, 1 week, 3 days, 1 day
+
+
+    // Initialization Methods
+
+    /**
+     * Calculates the layout of a timeline image depicting the given events.
+     * @param snapshot The snapshot of the timeline to be depicted.
+     * @param textMeasurer The service with which the text of the timeline is measured.
+     */
+    public TimelineLayout(EventSnapshot snapshot, TextMeasurer textMeasurer) {
+        this.snapshot = snapshot;
+        this.columns = snapshot.getColumns();
+        this.textMeasurer = textMeasurer;
+        setTimeBoundaries();
+        sketchTimelineEvents();
+        sketchTitle();
+        imageHeight = calculateImageHeight();
+        Collections.sort(rects);
+    }
+
+
+    // Setup Methods
+
+    /**
+     * Establishes time-based information necessary for the layout, taken from the earliest starting time and latest ending time of the events.
+     * Both are maintained by the handler as the timeline changes and carried by the snapshot, so no pass over the events is needed.
+     */
+    private void setTimeBoundaries() {
+        long endingTimeInMilliseconds;
+        if (!snapshot.isEmpty()) {
+            startingTimeInMilliseconds = snapshot.getEarliestTime();
+            endingTimeInMilliseconds = Math.max(startingTimeInMilliseconds, snapshot.getLatestTime());
+        } else {
+            startingTimeInMilliseconds = 0L;
+            endingTimeInMilliseconds = MILLISECONDS_IN_A_DAY;
+        }
+        timelineLengthInMilliseconds = endingTimeInMilliseconds - startingTimeInMilliseconds;
+        calculateMillisecondsPerPixel();
+        int calibratedWidth = (int) (timelineLengthInMilliseconds / millisecondsPerPixel);
+        imageWidth = Math.max(calibratedWidth, DEFAULT_IMAGE_WIDTH);
+    }
+
+    /**
+     *  Prepares the visual elements of the timeline to be rendered.
+     *  Every event is measured first, so that the events on each side of the timeline "bar" can be arranged into non-colliding lanes at once.
+     */
+    private void sketchTimelineEvents() {
+        calculateEventHeight();
+        int eventCount = columns.size();
+        Font[] eventFonts = new Font[eventCount];
+        int[] eventWidths = new int[eventCount];
+        int[] textWidths = new int[eventCount];
+        int[] xCoordinates = new int[eventCount];
+        int[] occupiedWidths = new int[eventCount];
+
+        for (int index = 0; index < eventCount; index++) {
+            eventFonts[index] = textMeasurer.getFont(columns.getFontName(index), Font.PLAIN, eventTextSize);
+            textWidths[index] = textMeasurer.getTextWidth(columns.getName(index), eventFonts[index]);
+            if (columns.isSpanOfTime(index)) {
+                eventWidths[index] = calculateSpanOfTimeWidth(index);
+                occupiedWidths[index] = Math.max(eventWidths[index], textWidths[index]);
+            } else {
+                eventWidths[index] = textWidths[index] + (eventTextOffset * 2);
+                occupiedWidths[index] = eventWidths[index];
+            }
+            xCoordinates[index] = calculateEventXCoordinate(index, eventWidths[index]);
+        }
+
+        int[] lanes = allocateLanes(xCoordinates, occupiedWidths);
+        for (int index = 0; index < eventCount; index++) {
+            int y = calculateEventYCoordinate(lanes[index], columns.isAboveTimelineBar(index));
+            if (columns.isSpanOfTime(index)) {
+                drawSpanOfTimeBody(index, xCoordinates[index], y, eventWidths[index], textWidths[index], eventFonts[index]);
+            } else {
+                drawSingleEventStem(index, y);
+                drawSingleEventBody(index, xCoordinates[index], y, eventWidths[index], textWidths[index], eventFonts[index]);
+            }
+        }
+    }
+
+    /**
+     * Arranges the events on each side of the timeline "bar" into lanes, such that no 2 events within a lane overlap across any part of their width.
+     * @param xCoordinates The X coordinate of each event.
+     * @param occupiedWidths The width occupied by each event.
+     * @return The lane of each event, numbered outwards from the timeline "bar" starting at 0.
+     */
+    private int[] allocateLanes(int[] xCoordinates, int[] occupiedWidths) {
+        int[] lanes = new int[xCoordinates.length];
+        laneCountAboveTimelineBar = allocateLanesOnSide(xCoordinates, occupiedWidths, true, lanes);
+        laneCountBelowTimelineBar = allocateLanesOnSide(xCoordinates, occupiedWidths, false, lanes);
+        return lanes;
+    }
+
+    /**
+     * Arranges the events on one side of the timeline "bar" into lanes. Each event occupies its width plus a single pixel of spacing.
+     * @param xCoordinates The X coordinate of each event.
+     * @param occupiedWidths The width occupied by each event.
+     * @param isAboveTimelineBar Whether the events above or below the "bar" are arranged.
+     * @param lanes The lane of each event, filled in for the events on the given side.
+     * @return The number of lanes used on the given side.
+     */
+    private int allocateLanesOnSide(int[] xCoordinates, int[] occupiedWidths, boolean isAboveTimelineBar, int[] lanes) {
+        int count = 0;
+        for (int index = 0; index < lanes.length; index++) {
+            if (columns.isAboveTimelineBar(index) == isAboveTimelineBar) { count++; }
+        }
+
+        int[] indices = new int[count];
+        int[] starts = new int[count];
+        int[] ends = new int[count];
+        int position = 0;
+        for (int index = 0; index < lanes.length; index++) {
+            if (columns.isAboveTimelineBar(index) != isAboveTimelineBar) { continue; }
+            indices[position] = index;
+            starts[position] = xCoordinates[index];
+            ends[position] = xCoordinates[index] + occupiedWidths[index] + 1;
+            position++;
+        }
+
+        int[] sideLanes = laneAllocator.allocateLanes(starts, ends);
+        for (int i = 0; i < count; i++) { lanes[indices[i]] = sideLanes[i]; }
+        return laneAllocator.getLaneCount();
+    }
+
+    /**
+     * Calculates how many milliseconds of time will be represented by each pixel of the image, a unit used to specific moments in time into positions on the image.
+     */
+    private void calculateMillisecondsPerPixel() {
+        int densityInDays = findTimelineDensityInDays();
+        millisecondsPerPixel = (densityInDays * MILLISECONDS_IN_A_DAY) / DEFAULT_IMAGE_WIDTH;
+    }
+
+    /**
+     * Calculates the appropriate height for the body of each event, then uses this height as the basis for the size of several related visual elements.
+     */
+    private void calculateEventHeight() {
+        eventHeight = DEFAULT_EVENT_HEIGHT;
+        shortEventHeight = eventHeight / 5;
+        eventTextOffset = eventHeight / 9;
+        eventTextSize = (int) (eventHeight * 0.8);
+        roundedRectArc = (int) (eventHeight * 0.60);
+        timelineBarHeight = eventStemWidth = eventHeight / 10;
+        if (timelineBarHeight % 2 != 0) {timelineBarHeight++;}
+    }
+
+    /**
+     * Calculates measurements related to the title visual element. The size of the title is fixed by the width of the image, whatever its font.
+     */
+    private void sketchTitle() {
+        titleFontSize = imageWidth / 20;
+        titleYPosition = (int) (titleFontSize * 1.5);
+    }
+
+    /**
+     * Calculates the appropriate height of the image based on the distance of events from the "bar" of the timeline.
+     * @return The height of the image.
+     */
+    private int calculateImageHeight() {
+        int titleSpace = titleFontSize + titleYPosition;
+        int topHalfHeight = (DEFAULT_IMAGE_HEIGHT  / 2) - titleSpace;
+        int bottomHalfHeight = titleYPosition;
+        topHalfHeight = Math.max(laneCountAboveTimelineBar * calculateLaneHeight(), topHalfHeight);
+        bottomHalfHeight = Math.max((laneCountBelowTimelineBar * calculateLaneHeight()) + titleYPosition, bottomHalfHeight);
+        timelineBarYPosition = topHalfHeight + titleSpace;
+        int calibratedHeight = topHalfHeight + bottomHalfHeight + titleSpace;
+        return Math.max(calibratedHeight, DEFAULT_IMAGE_HEIGHT);
+    }
+
+    /**
+     * Calculates the appropriate size of the image depending on the timeline's length, or "density" of the timeline.
+     * @return The "density" of the timeline.
+     */
+    private int findTimelineDensityInDays() {
+        long timelineLengthInDays = timelineLengthInMilliseconds / MILLISECONDS_IN_A_DAY;
+        for (int timelineDensity:TIMELINE_DENSITIES_IN_DAYS) {
+            if (timelineDensity <= timelineLengthInDays) { return timelineDensity; }
+        }
+        return TIMELINE_DENSITIES_IN_DAYS[TIMELINE_DENSITIES_IN_DAYS.length - 1];
+    }
+
+    /**
+     * Calculates the X coordinate of an event to be drawn based on the time at which it occurs.
+     * @param index The chronological position of the event to be drawn.
+     * @param width The width of the body of the event to be drawn.
+     * @return The X coordinate of the drawn event.
+     */
+    private int calculateEventXCoordinate(int index, int width) {
+        long eventTimeInMilliseconds = columns.getStartingTime(index);
+        int x = (int) ((eventTimeInMilliseconds - startingTimeInMilliseconds) / millisecondsPerPixel);
+        if (columns.isSpanOfTime(index)) { return x; }
+
+        if (x - (width / 2) < 0) {return 0;}
+        else if (x + (width / 2) > imageWidth) { return imageWidth - width; }
+        else { return x - (width / 2); }
+    }
+
+    /**
+     * Calculates the Y coordinate of an event to be drawn from the lane it occupies.
+     * @param lane The lane of the drawn event, numbered outwards from the timeline "bar" starting at 0.
+     * @param isAboveTimelineBar Whether the event is above the "bar" running through the center of the image.
+     * @return The Y coordinate of the drawn event.
+     */
+    private int calculateEventYCoordinate(int lane, boolean isAboveTimelineBar) {
+        int distanceFromInnermostLane = lane * calculateLaneHeight();
+        if (isAboveTimelineBar) { return -(eventHeight + (2 * timelineBarHeight)) - distanceFromInnermostLane; }
+        else { return (2 * timelineBarHeight) + distanceFromInnermostLane; }
+    }
+
+    /**
+     * Calculates the vertical distance between adjacent lanes of events.
+     * @return The height of each lane.
+     */
+    private int calculateLaneHeight() { return eventHeight + (2 * timelineBarHeight); }
+
+    /**
+     * Draws the "stem" of a single event.
+     * @param index The chronological position of the single event to be drawn.
+     * @param y The Y coordinate of the drawn event.
+     */
+    private void drawSingleEventStem(int index, int y) {
+        int stemHeight = abs(y);
+        int stemY;
+        if (columns.isAboveTimelineBar(index)) { stemY = -stemHeight; }
+        else {
+            stemHeight += eventHeight;
+            stemY = 0;
+        }
+        int stemX = calculateEventXCoordinate(index, eventStemWidth);
+        drawRect(stemX, stemY, eventStemWidth, stemHeight, columns.getBackgroundColor(index));
+    }
+
+    /**
+     * Draws the "body" of a single event.
+     * @param index The chronological position of the event to be drawn.
+     * @param x The X coordinate of the drawn event.
+     * @param y The Y coordinate of the drawn event.
+     * @param width The width of the drawn event's body.
+     * @param textWidth The width of the event's name.
+     * @param font The font with which the name of the event is written.
+     */
+    private void drawSingleEventBody(int index, int x, int y, int width, int textWidth, Font font) {
+        drawRoundedRect(x, y, width, eventHeight, columns.getBackgroundColor(index));
+        drawText(columns.getName(index), font, x + eventTextOffset, y + eventTextSize, textWidth, columns.getForegroundColor(index));
+    }
+
+    /**
+     * Calculates the appropriate width of the body of a span of time to be drawn.
+     * @param index The chronological position of the event to be drawn.
+     * @return The width of the event body.
+     */
+    private int calculateSpanOfTimeWidth(int index) {
+        return (int) ((columns.getEndingTime(index) - columns.getStartingTime(index)) / millisecondsPerPixel);
+    }
+
+    /**
+     * Draws the "body" of a single event.
+     * @param index The chronological position of the event to be drawn.
+     * @param x The X coordinate of the drawn event.
+     * @param y The Y coordinate of the drawn event.
+     * @param eventWidth The width of the body of the event to be drawn.
+     * @param textWidth The width of the event's name.
+     * @param eventFont The font with which the event's name is written.
+     */
+    private void drawSpanOfTimeBody(int index, int x, int y, int eventWidth, int textWidth, Font eventFont) {
+        int height;
+        Color textColor;
+        Color backgroundColor = columns.getBackgroundColor(index);
+        if (eventWidth > textWidth) {
+            height = eventHeight;
+            textColor = columns.getForegroundColor(index);
+        } else {
+            height = shortEventHeight;
+            textColor = backgroundColor;
+        }
+        drawRect(x, y, eventWidth, height, backgroundColor);
+        drawText(columns.getName(index), eventFont, x + eventTextOffset, y + eventTextSize, textWidth, textColor);
+    }
+
+    /**
+     * Adds a rectangle of the given specifications to the visual elements to be drawn.
+     * @param x The X coordinate at which the rectangle will be drawn.
+     * @param y The Y coordinate at which the rectangle will be drawn.
+     * @param width The width of the rectangle.
+     * @param height The height of the rectangle.
+     * @param color The color of the rectangle.
+     */
+    private void drawRect(int x, int y, int width, int height, Color color) {
+        rects.add(new RectWrapper(x, y, width, height, roundedRectArc, false, color));
+    }
+
+    /**
+     * Adds a rectangle of the given specifications to the visual elements to be drawn.
+     * @param x The X coordinate at which the rectangle will be drawn.
+     * @param y The Y coordinate at which the rectangle will be drawn.
+     * @param width The width of the rectangle.
+     * @param height The height of the rectangle.
+     * @param color The color of the rectangle.
+     */
+    private void drawRoundedRect(int x, int y, int width, int height, Color color) {
+        rects.add(new RectWrapper(x, y, width, height, roundedRectArc, true, color));
+    }
+
+    /**
+     * Adds a string of text of the given specifications ot the visual elements to be drawn.
+     * @param text The text to be written.
+     * @param font The font with which the text will be written.
+     * @param x The X coordinate at which the text will be written.
+     * @param y The Y coordinate at which the text will be written.
+     * @param width The measured width of the text.
+     * @param color The color of the text.
+     */
+    private void drawText(String text, Font font, int x, int y, int width, Color color) {
+        this.text.add(new TextWrapper(text, font, x, y, width, color));
+    }
+
+
+
+    // Information Requests
+
+    public EventSnapshot getSnapshot() { return snapshot; }
+
+    public int getImageWidth() { return imageWidth; }
+
+    public int getImageHeight() { return imageHeight; }
+
+    public int getTimelineBarYPosition() { return timelineBarYPosition; }
+
+    public int getTimelineBarHeight() { return timelineBarHeight; }
+
+    public int getTitleFontSize() { return titleFontSize; }
+
+    public int getTitleYPosition() { return titleYPosition; }
+
+    /**
+     * Returns every rectangle of the layout, ordered by vertical position. Must not be modified.
+     */
+    public List<RectWrapper> getRects() { return Collections.unmodifiableList(rects); }
+
+    /**
+     * Returns every string of text of the layout. Must not be modified.
+     */
+    public List<TextWrapper> getText() { return Collections.unmodifiableList(text); }
+}
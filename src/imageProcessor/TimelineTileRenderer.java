@@ -0,0 +1,450 @@
+/*
+Redstar Timeline Creator - A tool for easily creating visual timelines of events.
+Copyright (C) 2022 Xavier Mercerweiss
+
+This program is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+Redstar may be contacted for inquiry at: <redstar.software.official@gmail.com>
+ */
+
+package imageProcessor;
+
+import imageProcessor.wrappers.RectWrapper;
+import imageProcessor.wrappers.TextWrapper;
+
+import java.awt.*;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+
+/**
+ * An object used to render a timeline layout, either as a whole or as fixed-size square tiles produced on demand.
+ * Each tile is drawn using only the visual elements which intersect it, so the memory needed to render a tile is bounded by the tile size rather than the length of the timeline.
+ * Tiles are rendered exactly as the corresponding region of the whole image.
+ */
+public class TimelineTileRenderer {
+
+    private final TimelineLayout layout;
+    private final String title;
+    private final Font titleFont;
+    private final int titleX;
+    private final Color foregroundColor;
+    private final Color backgroundColor;
+
+    private final int columnCount;
+    private final int rowCount;
+    private final int[][] rectIndicesByTile;
+    private final int[][] textIndicesByTile;
+
+    private final int TILE_SIZE = 512;
+    private final int ANTIALIASING_MARGIN = 2;
+    private final int[] NO_ELEMENTS = new int[0];
+    private final Color ALPHA_LAYER = new Color(0x0000000, true);
+
+    /**
+     * A task which rasterizes a range of tiles directly into their regions of a band of the image, splitting the range in half until a single tile remains.
+     * Never serialized, as it only lives within a single render.
+     */
+    @SuppressWarnings("serial")
+    private class TileRasterizer extends RecursiveAction {
+        private final BufferedImage band;
+        private final int bandY;
+        private final int firstTile;
+        private final int endTile;
+
+        TileRasterizer(BufferedImage band, int bandY, int firstTile, int endTile) {
+            this.band = band;
+            this.bandY = bandY;
+            this.firstTile = firstTile;
+            this.endTile = endTile;
+        }
+
+        @Override
+        protected void compute() {
+            if (endTile - firstTile == 1) {
+                drawTileWithinBand(band, bandY, firstTile);
+                return;
+            }
+            int middleTile = (firstTile + endTile) >>> 1;
+            invokeAll(new TileRasterizer(band, bandY, firstTile, middleTile), new TileRasterizer(band, bandY, middleTile, endTile));
+        }
+    }
+
+
+    // Initialization Methods
+
+    /**
+     * Constructs a TimelineTileRenderer which renders the given layout, assigning each of its visual elements to the tiles it intersects.
+     * @param layout The layout to be rendered.
+     * @param title The title of the timeline.
+     * @param titleFont The font with which the title is written, of the size given by the layout.
+     * @param foregroundColor The color of the timeline "bar" and title.
+     * @param backgroundColor The color of the background of the image. Null if the background is left as an alpha layer.
+     * @param textMeasurer The service with which the title is measured.
+     */
+    public TimelineTileRenderer(TimelineLayout layout, String title, Font titleFont, Color foregroundColor, Color backgroundColor,
+                                TextMeasurer textMeasurer) {
+        this.layout = layout;
+        this.title = title;
+        this.titleFont = titleFont;
+        this.titleX = (layout.getImageWidth() - textMeasurer.getTextWidth(title, titleFont)) / 2;
+        this.foregroundColor = foregroundColor;
+        this.backgroundColor = backgroundColor;
+        this.columnCount = (layout.getImageWidth() + TILE_SIZE - 1) / TILE_SIZE;
+        this.rowCount = (layout.getImageHeight() + TILE_SIZE - 1) / TILE_SIZE;
+        this.rectIndicesByTile = assignRectsToTiles();
+        this.textIndicesByTile = assignTextToTiles();
+    }
+
+    /**
+     * Constructs a TimelineTileRenderer which renders the same layout as another with a different style, sharing the assignment of visual elements to tiles.
+     */
+    private TimelineTileRenderer(TimelineTileRenderer renderer, String title, Font titleFont, Color foregroundColor, Color backgroundColor,
+                                 TextMeasurer textMeasurer) {
+        this.layout = renderer.layout;
+        this.title = title;
+        this.titleFont = titleFont;
+        this.titleX = (layout.getImageWidth() - textMeasurer.getTextWidth(title, titleFont)) / 2;
+        this.foregroundColor = foregroundColor;
+        this.backgroundColor = backgroundColor;
+        this.columnCount = renderer.columnCount;
+        this.rowCount = renderer.rowCount;
+        this.rectIndicesByTile = renderer.rectIndicesByTile;
+        this.textIndicesByTile = renderer.textIndicesByTile;
+    }
+
+    /**
+     * Determines the tiles intersected by each rectangle of the layout.
+     * @return The indices of the rectangles intersecting each tile, in the order in which they are rendered.
+     */
+    private int[][] assignRectsToTiles() {
+        List<RectWrapper> rects = layout.getRects();
+        int timelineBarYPosition = layout.getTimelineBarYPosition();
+        int[] lefts = new int[rects.size()];
+        int[] tops = new int[rects.size()];
+        int[] rights = new int[rects.size()];
+        int[] bottoms = new int[rects.size()];
+        for (int index = 0; index < rects.size(); index++) {
+            RectWrapper wrapper = rects.get(index);
+            lefts[index] = wrapper.x;
+            tops[index] = wrapper.y + timelineBarYPosition;
+            rights[index] = wrapper.x + wrapper.width;
+            bottoms[index] = wrapper.y + timelineBarYPosition + wrapper.height;
+        }
+        return assignToTiles(lefts, tops, rights, bottoms);
+    }
+
+    /**
+     * Determines the tiles intersected by each string of text of the layout.
+     * The bounds of each string are widened by its font size in every direction, upwards twice over, so as to contain any glyph overhanging its measured width or its baseline.
+     * @return The indices of the strings of text intersecting each tile, in the order in which they are rendered.
+     */
+    private int[][] assignTextToTiles() {
+        List<TextWrapper> text = layout.getText();
+        int timelineBarYPosition = layout.getTimelineBarYPosition();
+        int[] lefts = new int[text.size()];
+        int[] tops = new int[text.size()];
+        int[] rights = new int[text.size()];
+        int[] bottoms = new int[text.size()];
+        for (int index = 0; index < text.size(); index++) {
+            TextWrapper wrapper = text.get(index);
+            int fontSize = wrapper.font.getSize();
+            int baseline = wrapper.y + timelineBarYPosition;
+            lefts[index] = wrapper.x - fontSize;
+            tops[index] = baseline - (2 * fontSize);
+            rights[index] = wrapper.x + wrapper.width + fontSize;
+            bottoms[index] = baseline + fontSize;
+        }
+        return assignToTiles(lefts, tops, rights, bottoms);
+    }
+
+    /**
+     * Determines the tiles intersected by each of a set of bounding boxes, allowing for antialiasing at their edges.
+     * @param lefts The left edge of each box.
+     * @param tops The top edge of each box.
+     * @param rights The right edge of each box.
+     * @param bottoms The bottom edge of each box.
+     * @return The indices of the boxes intersecting each tile in ascending order.
+     */
+    private int[][] assignToTiles(int[] lefts, int[] tops, int[] rights, int[] bottoms) {
+        int[] counts = new int[columnCount * rowCount];
+        for (int index = 0; index < lefts.length; index++) {
+            for (int row = firstTile(tops[index], rowCount); row <= lastTile(bottoms[index], rowCount); row++) {
+                for (int column = firstTile(lefts[index], columnCount); column <= lastTile(rights[index], columnCount); column++) {
+                    counts[(row * columnCount) + column]++;
+                }
+            }
+        }
+
+        int[][] indicesByTile = new int[counts.length][];
+        for (int tile = 0; tile < counts.length; tile++) {
+            indicesByTile[tile] = (counts[tile] == 0) ? NO_ELEMENTS : new int[counts[tile]];
+            counts[tile] = 0;
+        }
+
+        for (int index = 0; index < lefts.length; index++) {
+            for (int row = firstTile(tops[index], rowCount); row <= lastTile(bottoms[index], rowCount); row++) {
+                for (int column = firstTile(lefts[index], columnCount); column <= lastTile(rights[index], columnCount); column++) {
+                    int tile = (row * columnCount) + column;
+                    indicesByTile[tile][counts[tile]++] = index;
+                }
+            }
+        }
+        return indicesByTile;
+    }
+
+    /**
+     * Returns the first tile along an axis which may be drawn to by an element beginning at the given position.
+     */
+    private int firstTile(int position, int tileCount) {
+        return Math.min(Math.max(Math.floorDiv(position - ANTIALIASING_MARGIN, TILE_SIZE), 0), tileCount);
+    }
+
+    /**
+     * Returns the last tile along an axis which may be drawn to by an element ending at the given position.
+     */
+    private int lastTile(int position, int tileCount) {
+        return Math.min(Math.floorDiv(position + ANTIALIASING_MARGIN, TILE_SIZE), tileCount - 1);
+    }
+
+
+    // Public Methods
+
+    /**
+     * Creates a renderer of the same layout with a different title, title font or colors. No layout is recalculated and no element is reassigned to tiles.
+     * @param title The title of the timeline.
+     * @param titleFont The font with which the title is written, of the size given by the layout.
+     * @param foregroundColor The color of the timeline "bar" and title.
+     * @param backgroundColor The color of the background of the image. Null if the background is left as an alpha layer.
+     * @param textMeasurer The service with which the title is measured.
+     * @return A renderer of the same layout in the given style.
+     */
+    public TimelineTileRenderer withStyle(String title, Font titleFont, Color foregroundColor, Color backgroundColor, TextMeasurer textMeasurer) {
+        return new TimelineTileRenderer(this, title, titleFont, foregroundColor, backgroundColor, textMeasurer);
+    }
+
+    /**
+     * Renders the whole timeline image.
+     * @return The timeline image.
+     */
+    public BufferedImage renderImage() {
+        BufferedImage image = new BufferedImage(layout.getImageWidth(), layout.getImageHeight(), BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = createGraphics(image);
+        renderBackground(graphics, 0, 0, image.getWidth(), image.getHeight());
+        renderEvents(graphics, null, null);
+        renderForeground(graphics);
+        graphics.dispose();
+        return image;
+    }
+
+    /**
+     * Renders the whole timeline image, rasterizing its tiles in parallel on the given pool.
+     * Each tile is drawn with its own Graphics object directly into its region of the image, so the image is identical to that rendered serially.
+     * @param pool The pool on which the tiles are rasterized.
+     * @return The timeline image.
+     */
+    public BufferedImage renderImage(ForkJoinPool pool) { return renderBand(0, layout.getImageHeight(), pool); }
+
+    /**
+     * Renders a horizontal band of the timeline image, spanning its full width. The band is drawn one tile at a time, each with its own Graphics object.
+     * @param bandY The Y coordinate of the top row of the band within the image.
+     * @param bandHeight The number of rows in the band.
+     * @return The band, identical to the rows of the whole image which it covers.
+     */
+    public BufferedImage renderBand(int bandY, int bandHeight) {
+        BufferedImage band = createBand(bandY, bandHeight);
+        int endTile = findEndTile(bandY, bandHeight);
+        for (int tile = findFirstTile(bandY); tile < endTile; tile++) { drawTileWithinBand(band, bandY, tile); }
+        return band;
+    }
+
+    /**
+     * Renders a horizontal band of the timeline image, spanning its full width, rasterizing the tiles it covers in parallel on the given pool.
+     * @param bandY The Y coordinate of the top row of the band within the image.
+     * @param bandHeight The number of rows in the band.
+     * @param pool The pool on which the tiles are rasterized.
+     * @return The band, identical to the rows of the whole image which it covers.
+     */
+    public BufferedImage renderBand(int bandY, int bandHeight, ForkJoinPool pool) {
+        BufferedImage band = createBand(bandY, bandHeight);
+        pool.invoke(new TileRasterizer(band, bandY, findFirstTile(bandY), findEndTile(bandY, bandHeight)));
+        return band;
+    }
+
+    /**
+     * Renders a single tile of the timeline image. Tiles along the right and bottom edges of the image are cropped to the image.
+     * @param column The column of the tile, counted from the left edge of the image.
+     * @param row The row of the tile, counted from the top edge of the image.
+     * @return The tile, identical to the region of the whole image which it covers.
+     */
+    public BufferedImage renderTile(int column, int row) {
+        int width = Math.min(TILE_SIZE, layout.getImageWidth() - (column * TILE_SIZE));
+        int height = Math.min(TILE_SIZE, layout.getImageHeight() - (row * TILE_SIZE));
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        drawTileRegion(image, column, row, row * TILE_SIZE, height);
+        return image;
+    }
+
+    /**
+     * Creates an empty band of the timeline image, checking that it lies within the image.
+     */
+    private BufferedImage createBand(int bandY, int bandHeight) {
+        if (bandY < 0 || bandHeight <= 0 || bandY + bandHeight > layout.getImageHeight()) {
+            throw new IllegalArgumentException("Band does not lie within the image.");
+        }
+        return new BufferedImage(layout.getImageWidth(), bandHeight, BufferedImage.TYPE_INT_ARGB);
+    }
+
+    /**
+     * Returns the first tile covered by a band beginning at the given row of the image.
+     */
+    private int findFirstTile(int bandY) { return (bandY / TILE_SIZE) * columnCount; }
+
+    /**
+     * Returns the tile following the last tile covered by a band of the given position and height.
+     */
+    private int findEndTile(int bandY, int bandHeight) { return (((bandY + bandHeight - 1) / TILE_SIZE) + 1) * columnCount; }
+
+    /**
+     * Draws the part of a single tile which lies within a band of the image.
+     * @param band The band to which the tile is drawn.
+     * @param bandY The Y coordinate of the top row of the band within the image.
+     * @param tile The index of the tile, counted across each row of tiles in turn.
+     */
+    private void drawTileWithinBand(BufferedImage band, int bandY, int tile) {
+        int column = tile % columnCount;
+        int row = tile / columnCount;
+        int tileX = column * TILE_SIZE;
+        int regionY = Math.max(row * TILE_SIZE, bandY);
+        int regionEnd = Math.min((row + 1) * TILE_SIZE, bandY + band.getHeight());
+        BufferedImage target = band.getSubimage(tileX, regionY - bandY, band.getWidth() - tileX, regionEnd - regionY);
+        drawTileRegion(target, column, row, regionY, regionEnd - regionY);
+    }
+
+    /**
+     * Draws a horizontal region of a single tile of the timeline image with its own Graphics object.
+     * @param target The image to which the region is drawn, with its top left corner at that of the region. Drawing is clipped to the region.
+     * @param column The column of the tile.
+     * @param row The row of the tile.
+     * @param regionY The Y coordinate of the top row of the region within the image.
+     * @param regionHeight The number of rows in the region.
+     */
+    private void drawTileRegion(BufferedImage target, int column, int row, int regionY, int regionHeight) {
+        int tileX = column * TILE_SIZE;
+        int width = Math.min(TILE_SIZE, layout.getImageWidth() - tileX);
+        int tile = (row * columnCount) + column;
+
+        Graphics2D graphics = createGraphics(target);
+        graphics.clipRect(0, 0, width, regionHeight);
+        graphics.translate(-tileX, -regionY);
+        renderBackground(graphics, tileX, regionY, width, regionHeight);
+        renderEvents(graphics, rectIndicesByTile[tile], textIndicesByTile[tile]);
+        renderForeground(graphics);
+        graphics.dispose();
+    }
+
+    /**
+     * Creates a Graphics object drawing to the given image with the rendering hints of the timeline image.
+     */
+    private Graphics2D createGraphics(BufferedImage image) {
+        Graphics2D graphics = image.createGraphics();
+        RenderingHints rendering = new RenderingHints(
+                RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        graphics.setRenderingHints(rendering);
+        return graphics;
+    }
+
+
+    // Render Methods
+
+    /**
+     * Renders the background of the given region of the image.
+     */
+    private void renderBackground(Graphics2D graphics, int x, int y, int width, int height) {
+        if (backgroundColor != null) { graphics.setColor(backgroundColor); }
+        else { graphics.setColor(ALPHA_LAYER); }
+        graphics.fill(new Rectangle2D.Double(x, y, width, height));
+    }
+
+    /**
+     * Renders the visual elements used to represent events to the image.
+     * The elements are positioned relative to the timeline "bar", so they are rendered with the origin moved onto it rather than being repositioned.
+     * @param graphics The Graphics object to which the elements are rendered.
+     * @param rectIndices The indices of the rectangles to be rendered. Null if every rectangle is rendered.
+     * @param textIndices The indices of the strings of text to be rendered. Null if every string of text is rendered.
+     */
+    private void renderEvents(Graphics2D graphics, int[] rectIndices, int[] textIndices) {
+        int timelineBarYPosition = layout.getTimelineBarYPosition();
+        graphics.translate(0, timelineBarYPosition);
+        renderRects(graphics, rectIndices);
+        renderText(graphics, textIndices);
+        graphics.translate(0, -timelineBarYPosition);
+    }
+
+    /**
+     * Renders the foreground of the image, the timeline title and timeline "bar" splitting the image in two.
+     */
+    private void renderForeground(Graphics2D graphics) {
+        graphics.setColor(foregroundColor);
+        graphics.fill(new Rectangle2D.Double(0, layout.getTimelineBarYPosition(), layout.getImageWidth(), layout.getTimelineBarHeight()));
+        graphics.setFont(titleFont);
+        graphics.drawString(title, titleX, layout.getTitleYPosition());
+    }
+
+    /**
+     * Renders the given rectangles of the layout to the image.
+     */
+    private void renderRects(Graphics2D graphics, int[] indices) {
+        List<RectWrapper> rects = layout.getRects();
+        int count = (indices == null) ? rects.size() : indices.length;
+        for (int i = 0; i < count; i++) {
+            RectWrapper wrapper = rects.get((indices == null) ? i : indices[i]);
+            graphics.setColor(wrapper.color);
+            Shape rect = wrapper.generateRect();
+            graphics.fill(rect);
+        }
+    }
+
+    /**
+     * Renders the given strings of text of the layout to the image.
+     */
+    private void renderText(Graphics2D graphics, int[] indices) {
+        List<TextWrapper> text = layout.getText();
+        int count = (indices == null) ? text.size() : indices.length;
+        for (int i = 0; i < count; i++) {
+            TextWrapper wrapper = text.get((indices == null) ? i : indices[i]);
+            graphics.setColor(wrapper.color);
+            graphics.setFont(wrapper.font);
+            graphics.drawString(wrapper.text, wrapper.x, wrapper.y);
+        }
+    }
+
+
+    // Information Requests
+
+    public TimelineLayout getLayout() { return layout; }
+
+    public int getImageWidth() { return layout.getImageWidth(); }
+
+    public int getImageHeight() { return layout.getImageHeight(); }
+
+    public int getTileSize() { return TILE_SIZE; }
+
+    public int getColumnCount() { return columnCount; }
+
+    public int getRowCount() { return rowCount; }
+}
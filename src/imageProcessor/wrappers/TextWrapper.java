@@ -37,6 +37,7 @@ public class TextWrapper {
     an event reaches from the timeline bar.
     */
 
+    public Integer width;
     public String text;
     public Font font;
     public Color color;
@@ -47,13 +48,15 @@ public class TextWrapper {
      * @param font The font with which the text shall be drawn in the timeline image.
      * @param x The horizontal position of the text on the timeline image.
      * @param y The vertical position of the text on the timeline image relative to the "bar" splitting the timeline image in two.
+     * @param width The measured width of the text when drawn in the given font.
      * @param color The color of the text to be drawn on the timeline image.
      */
-    public TextWrapper(String text, Font font, int x, int y, Color color) {
+    public TextWrapper(String text, Font font, int x, int y, int width, Color color) {
         this.text = text;
         this.font = font;
         this.x = x;
         this.y = y;
+        this.width = width;
         this.color = color;
     }
 }
@@ -0,0 +1,162 @@
+/*
+Redstar Timeline Creator - A tool for easily creating visual timelines of events.
+Copyright (C) 2022 Xavier Mercerweiss
+
+This program is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+Redstar may be contacted for inquiry at: <redstar.software.official@gmail.com>
+ */
+
+package eventHandler;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A stress check that events submitted concurrently are neither lost nor duplicated, while other threads hold the lock to read snapshots and add events directly.
+ * Half of each producer's events bear names shared with every other producer and with the directly added events, so that replacement by name is contended, while
+ * the other half bear names of their own, so that a lost event is noticed. No call to flushPendingEvents() is made: once the producers finish, the check only waits for
+ * the drains they have already scheduled, so an event left queued without a drain is noticed. Every snapshot taken along the way must be ordered and free of duplicates, and the final timeline must hold
+ * exactly one event of each name, on which the name map, the ordered set and the ending times all agree. Run with no arguments; exits with a non-zero status on failure.
+ */
+public class SubmitStressCheck {
+
+    private static final String DATETIME_FORMAT = "HH:mm dd/MM/yyyy";
+    private static final int ROUNDS = 20;
+    private static final int PRODUCERS = 4;
+    private static final int EVENTS_PER_PRODUCER = 5000;
+    private static final int DIRECT_ADDITIONS = 2000;
+    private static final int SHARED_NAMES = EVENTS_PER_PRODUCER / 2;
+
+    public static void main(String[] args) throws InterruptedException {
+        long startTime = System.nanoTime();
+        for (int round = 0; round < ROUNDS; round++) { runRound(round); }
+        System.out.printf("Submit stress check passed: %d rounds of %d submitted and %d directly added events in %d ms.%n",
+                ROUNDS, PRODUCERS * EVENTS_PER_PRODUCER, DIRECT_ADDITIONS, (System.nanoTime() - startTime) / 1_000_000);
+    }
+
+    private static void runRound(int round) throws InterruptedException {
+        EventHandler handler = new EventHandler(DATETIME_FORMAT);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean producing = new AtomicBoolean(true);
+        AtomicReference<String> failure = new AtomicReference<>();
+        List<Thread> writers = new ArrayList<>();
+
+        for (int producer = 0; producer < PRODUCERS; producer++) {
+            int producerIndex = producer;
+            writers.add(new Thread(() -> {
+                await(start);
+                for (int i = 0; i < EVENTS_PER_PRODUCER; i++) {
+                    String name = (i % 2 == 0) ? sharedName(i / 2) : ownName(producerIndex, i);
+                    handler.submit(createEvent(name, i, producerIndex));
+                }
+            }));
+        }
+        writers.add(new Thread(() -> {
+            await(start);
+            for (int i = 0; i < DIRECT_ADDITIONS; i++) { handler.addEventToTimeline(createEvent(sharedName(i % SHARED_NAMES), i, PRODUCERS)); }
+        }));
+
+        List<Thread> readers = new ArrayList<>();
+        readers.add(new Thread(() -> {
+            await(start);
+            while (producing.get()) {
+                String problem = findProblem(handler.getSnapshot());
+                if (problem != null) { failure.compareAndSet(null, problem); }
+            }
+        }));
+
+        writers.forEach(Thread::start);
+        readers.forEach(Thread::start);
+        start.countDown();
+        for (Thread writer:writers) { writer.join(); }
+        producing.set(false);
+        for (Thread reader:readers) { reader.join(); }
+        handler.awaitPendingSubmissions();
+
+        check(failure.get() == null, "Round " + round + ": " + failure.get());
+        EventSnapshot snapshot = handler.getSnapshot();
+        String problem = findProblem(snapshot);
+        check(problem == null, "Round " + round + ": " + problem);
+        int expectedEvents = SHARED_NAMES + PRODUCERS * (EVENTS_PER_PRODUCER - SHARED_NAMES);
+        check(snapshot.getEvents().size() == expectedEvents,
+                "Round " + round + ": expected " + expectedEvents + " events but the timeline holds " + snapshot.getEvents().size() + ".");
+        for (int i = 0; i < SHARED_NAMES; i++) {
+            check(handler.get(sharedName(i)) != null, "Round " + round + ": every event named " + sharedName(i) + " was lost.");
+        }
+        for (int producer = 0; producer < PRODUCERS; producer++) {
+            for (int i = 1; i < EVENTS_PER_PRODUCER; i += 2) {
+                check(handler.get(ownName(producer, i)) != null, "Round " + round + ": submitted event " + ownName(producer, i) + " was lost.");
+            }
+        }
+
+        long latestEndingTime = 0;
+        for (Event event:snapshot.getEvents()) {
+            check(handler.get(event.name) == event, "Round " + round + ": the name map and the ordered set disagree on " + event.name + ".");
+            latestEndingTime = Math.max(latestEndingTime, event.endingTime);
+        }
+        check(handler.getEarliestTime() == snapshot.get(0).startingTime, "Round " + round + ": the earliest time disagrees with the snapshot.");
+        check(handler.getLatestTime() == latestEndingTime, "Round " + round + ": the latest time disagrees with the snapshot.");
+    }
+
+    /**
+     * Returns a description of the first inconsistency within the given snapshot, or null if its events are in chronological order without duplicates.
+     */
+    private static String findProblem(EventSnapshot snapshot) {
+        List<Event> events = snapshot.getEvents();
+        Set<String> names = new HashSet<>();
+        for (int i = 0; i < events.size(); i++) {
+            if (!names.add(events.get(i).name)) { return "snapshot " + snapshot.getVersion() + " holds " + events.get(i).name + " twice."; }
+            if (i > 0 && compare(events.get(i - 1), events.get(i)) >= 0) { return "snapshot " + snapshot.getVersion() + " is out of order at " + i + "."; }
+        }
+        return null;
+    }
+
+    private static int compare(Event first, Event second) {
+        int order = first.compareTo(second);
+        return (order != 0) ? order : first.name.compareTo(second.name);
+    }
+
+    private static String sharedName(int index) { return "Shared " + index; }
+
+    private static String ownName(int producer, int index) { return "Submitted " + producer + "-" + index; }
+
+    /**
+     * Creates a span of time whose starting and ending times both depend on the thread adding it, so that versions of an event of the same name occupy different places in the ordered set.
+     * Spans grow long enough with each thread that the latest ending time of the timeline belongs to whichever versions survive, so a replaced version whose ending time is left behind is noticed.
+     */
+    private static Event createEvent(String name, long index, int writer) {
+        long startingTime = index * (PRODUCERS + 1) + writer;
+        long duration = 1 + (long) writer * EVENTS_PER_PRODUCER * (PRODUCERS + 1);
+        return new Event(name, startingTime, startingTime + duration, true, DATETIME_FORMAT, "Serif", Color.BLACK, Color.WHITE, true);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try { latch.await(); }
+        catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+    }
+
+    private static void check(boolean condition, String failure) {
+        if (!condition) {
+            System.err.println("FAILED: " + failure);
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+Redstar Timeline Creator - A tool for easily creating visual timelines of events.
+Copyright (C) 2022 Xavier Mercerweiss
+
+This program is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+Redstar may be contacted for inquiry at: <redstar.software.official@gmail.com>
+ */
+
+package eventHandler;
+
+import java.awt.*;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A benchmark comparing TimelineFileWriter against the writer it replaced, which formatted every line through String.format and wrote it through a BufferedWriter over a FileWriter.
+ * A large timeline is generated, written several times by each writer after a warm-up, and the median and best times reported. The outputs of both writers are also compared byte for byte.
+ * This is not one of the checks run by test/run-checks.sh; run it separately with the number of events as an optional argument, 1000000 by default.
+ */
+public class TimelineFileWriterBenchmark {
+
+    private static final String DATETIME_FORMAT = "HH:mm dd/MM/yyyy";
+    private static final int WARM_UP_RUNS = 2;
+    private static final int MEASURED_RUNS = 5;
+    private static final String[] FONTS = {"Serif", "SansSerif", "Monospaced"};
+
+    public static void main(String[] args) throws IOException {
+        int eventCount = (args.length > 0) ? Integer.parseInt(args[0]) : 1_000_000;
+        List<Event> events = generateEvents(eventCount);
+        Path directory = Files.createTempDirectory("writer-benchmark");
+        Path oldFile = directory.resolve("old.tmln");
+        Path newFile = directory.resolve("new.tmln");
+
+        long[] oldTimes = new long[MEASURED_RUNS];
+        long[] newTimes = new long[MEASURED_RUNS];
+        for (int run = -WARM_UP_RUNS; run < MEASURED_RUNS; run++) {
+            long startTime = System.nanoTime();
+            TimelineFileWriterCheck.writeWithStringFormat(oldFile.toString(), "Benchmark", DATETIME_FORMAT, events);
+            long oldTime = System.nanoTime() - startTime;
+
+            startTime = System.nanoTime();
+            try (TimelineFileWriter writer = new TimelineFileWriter(newFile.toString(), DATETIME_FORMAT)) {
+                writer.writeTimeline("Benchmark", "Serif", Color.BLACK, Color.WHITE, events);
+            }
+            long newTime = System.nanoTime() - startTime;
+
+            if (run >= 0) {
+                oldTimes[run] = oldTime;
+                newTimes[run] = newTime;
+            }
+        }
+
+        boolean isIdentical = Files.mismatch(oldFile, newFile) == -1;
+        long fileSize = Files.size(newFile);
+        report("String.format + FileWriter", eventCount, fileSize, oldTimes);
+        report("TimelineFileWriter", eventCount, fileSize, newTimes);
+        System.out.printf("Speed-up (median): %.1fx%nOutputs identical: %b%n", (double) median(oldTimes) / median(newTimes), isIdentical);
+
+        Files.delete(oldFile);
+        Files.delete(newFile);
+        Files.delete(directory);
+        if (!isIdentical) { System.exit(1); }
+    }
+
+    /**
+     * Generates events spread over a century at minute precision, a third of which are spans of time, with a handful of fonts and random colors.
+     */
+    private static List<Event> generateEvents(int eventCount) {
+        Random random = new Random(42);
+        long firstTime = -2208988800000L;
+        List<Event> events = new ArrayList<>(eventCount);
+        for (int i = 0; i < eventCount; i++) {
+            long startingTime = firstTime + random.nextInt(100 * 365 * 24 * 60) * 60_000L;
+            boolean isSpanOfTime = random.nextInt(3) == 0;
+            long endingTime = isSpanOfTime ? startingTime + random.nextInt(10 * 365 * 24 * 60) * 60_000L : startingTime;
+            events.add(new Event("Event " + i, startingTime, endingTime, isSpanOfTime, DATETIME_FORMAT, FONTS[random.nextInt(FONTS.length)],
+                    new Color(random.nextInt(1 << 24)), new Color(random.nextInt(1 << 24)), random.nextBoolean()));
+        }
+        return events;
+    }
+
+    private static void report(String writerName, int eventCount, long fileSize, long[] times) {
+        long medianTime = median(times);
+        System.out.printf("%-28s median %6d ms, best %6d ms, %5.2f M events/s, %6.1f MB/s%n", writerName, medianTime / 1_000_000,
+                Arrays.stream(times).min().getAsLong() / 1_000_000, eventCount / (medianTime / 1e3), fileSize / (medianTime / 1e3));
+    }
+
+    private static long median(long[] times) {
+        long[] sortedTimes = times.clone();
+        Arrays.sort(sortedTimes);
+        return sortedTimes[sortedTimes.length / 2];
+    }
+}
@@ -0,0 +1,125 @@
+/*
+Redstar Timeline Creator - A tool for easily creating visual timelines of events.
+Copyright (C) 2022 Xavier Mercerweiss
+
+This program is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+Redstar may be contacted for inquiry at: <redstar.software.official@gmail.com>
+ */
+package eventHandler;
+
+import java.awt.*;
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A check that TimelineFileWriter writes exactly the bytes of the writer it replaced, which formatted every line through String.format and wrote it through a FileWriter,
+ * and that TimelineFileReader reads back every event it writes. Times before the epoch, in the first millennium, at the end of the ninth millennium, and repeated times which
+ * the writer formats from its cache are all covered, in both the default datetime format, which the writer formats itself, and another format, which it formats through
+ * a SimpleDateFormat. Run with no arguments; exits with a non-zero status on failure.
+ */
+public class TimelineFileWriterCheck {
+
+    private static final String DEFAULT_DATETIME_FORMAT = "HH:mm dd/MM/yyyy";
+    private static final String OTHER_DATETIME_FORMAT = "yyyy-MM-dd HH:mm";
+    private static final long MINUTE = 60_000L;
+    private static final long[] TIMES = {0L, -MINUTE, -2208988800000L, -47000000040000L, 253402300740000L, 1_699_999_980_000L, 1_699_999_980_000L + 59 * MINUTE};
+
+    public static void main(String[] args) throws IOException, ParseException {
+        Path directory = Files.createTempDirectory("writer-check");
+        for (String datetimeFormat:new String[] {DEFAULT_DATETIME_FORMAT, OTHER_DATETIME_FORMAT}) {
+            List<Event> events = createEvents(datetimeFormat);
+            Path expectedFile = directory.resolve("expected.tmln");
+            Path actualFile = directory.resolve("actual.tmln");
+            writeWithStringFormat(expectedFile.toString(), "Check", datetimeFormat, events);
+            try (TimelineFileWriter writer = new TimelineFileWriter(actualFile.toString(), datetimeFormat)) {
+                writer.writeTimeline("Check", "Serif", Color.BLACK, Color.WHITE, events);
+            }
+            check(Files.mismatch(expectedFile, actualFile) == -1, "TimelineFileWriter and String.format disagree in the format " + datetimeFormat + ".");
+
+            try (TimelineFileReader reader = new TimelineFileReader(actualFile.toString(), datetimeFormat)) {
+                reader.readHeader();
+                for (Event expected:events) {
+                    Event actual = reader.readEvent();
+                    check(actual != null && actual.name.equals(expected.name) && actual.startingTime == expected.startingTime && actual.endingTime == expected.endingTime
+                            && actual.isSpanOfTime == expected.isSpanOfTime && actual.isAboveTimelineBar == expected.isAboveTimelineBar
+                            && actual.fontName.equals(expected.fontName) && actual.foregroundColor.equals(expected.foregroundColor)
+                            && actual.backgroundColor.equals(expected.backgroundColor), expected.name + " was not read back as written in the format " + datetimeFormat + ".");
+                }
+                check(reader.readEvent() == null, "More events were read back than were written in the format " + datetimeFormat + ".");
+            }
+            Files.delete(expectedFile);
+            Files.delete(actualFile);
+        }
+        Files.delete(directory);
+        System.out.println("Timeline file writer check passed.");
+    }
+
+    /**
+     * Creates a single event and a span of time starting at each time, then repeats every event under another name so that the writer formats each time from its cache.
+     */
+    private static List<Event> createEvents(String datetimeFormat) {
+        List<Event> events = new ArrayList<>();
+        for (int repetition = 0; repetition < 2; repetition++) {
+            for (int i = 0; i < TIMES.length; i++) {
+                events.add(new Event("Single " + repetition + "-" + i, TIMES[i], TIMES[i], false, datetimeFormat, "Serif",
+                        new Color(i, 128, 255 - i), Color.WHITE, i % 2 == 0));
+                events.add(new Event("Span " + repetition + "-" + i, TIMES[i], TIMES[i] + 90 * MINUTE, true, datetimeFormat, "Monospaced",
+                        Color.BLACK, new Color(255, i, 0), i % 2 != 0));
+            }
+        }
+        return events;
+    }
+
+    /**
+     * Writes the timeline exactly as EventHandler did before TimelineFileWriter was introduced.
+     */
+    static void writeWithStringFormat(String filePath, String title, String datetimeFormat, List<Event> events) throws IOException {
+        SimpleDateFormat formatter = new SimpleDateFormat(datetimeFormat);
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filePath))) {
+            writer.write(String.format("%s\n%s\n", title, "Serif"));
+            writer.write(String.format("%d,%d,%d,%d,%d,%d\n", 0, 0, 0, 255, 255, 255));
+            for (Event event:events) {
+                String startingTime = formatter.format(event.startingTime);
+                Color foreground = event.foregroundColor;
+                Color background = event.backgroundColor;
+                int isAboveTimelineBar = event.isAboveTimelineBar ? 1 : 0;
+                if (event.isSpanOfTime) {
+                    writer.write(String.format("%s,%d,%d,%s,%d,%d,%d,%d,%d,%d,%s,%s\n", event.name, 1, isAboveTimelineBar, event.fontName,
+                            foreground.getRed(), foreground.getGreen(), foreground.getBlue(),
+                            background.getRed(), background.getGreen(), background.getBlue(), startingTime, formatter.format(event.endingTime)));
+                }
+                else {
+                    writer.write(String.format("%s,%d,%d,%s,%d,%d,%d,%d,%d,%d,%s\n", event.name, 0, isAboveTimelineBar, event.fontName,
+                            foreground.getRed(), foreground.getGreen(), foreground.getBlue(),
+                            background.getRed(), background.getGreen(), background.getBlue(), startingTime));
+                }
+            }
+        }
+    }
+
+    private static void check(boolean condition, String failure) {
+        if (!condition) {
+            System.err.println("FAILED: " + failure);
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+/*
+Redstar Timeline Creator - A tool for easily creating visual timelines of events.
+Copyright (C) 2022 Xavier Mercerweiss
+
+This program is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+Redstar may be contacted for inquiry at: <redstar.software.official@gmail.com>
+ */
+
+package eventHandler;
+
+import java.awt.*;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.Arrays;
+
+/**
+ * A check that changes already folded into a timeline file are never replayed from its journal in a later session, whatever the number of changes made in earlier sessions.
+ * Each session is driven through the EventHandler alone: the timeline file is loaded and its journal replayed, changes are made, and the timeline may be saved before the
+ * journal is closed. A journal which grows large between saves must compact itself without writing the timeline file. Run with no arguments; exits with a non-zero status on failure.
+ */
+public class TimelineJournalReplayCheck {
+
+    private static final String DATETIME_FORMAT = "HH:mm dd/MM/yyyy";
+    private static final int SAVED_EVENTS = 10;
+    private static final int EARLIER_SESSION_CHANGES = 4000;
+    private static final int REPEATED_CHANGES = 40000;
+    private static final int REPEATED_NAMES = 100;
+
+    public static void main(String[] args) throws IOException, ParseException {
+        Path directory = Files.createTempDirectory("journal-check");
+        String timelineFile = directory.resolve("check.tmln").toString();
+
+        // Session 1: a new timeline is saved.
+        EventHandler handler = new EventHandler(DATETIME_FORMAT);
+        for (int i = 0; i < SAVED_EVENTS; i++) { handler.addEventToTimeline(createEvent("Saved " + i)); }
+        save(handler, timelineFile);
+        close(handler);
+
+        // Session 2: many changes, then "A" is added, and the session ends without saving.
+        handler = load(timelineFile);
+        check(handler.isTimelineSaved(), "A freshly saved timeline should have nothing to replay.");
+        for (int i = 0; i < EARLIER_SESSION_CHANGES; i++) { handler.addEventToTimeline(createEvent("Filler " + i)); }
+        handler.addEventToTimeline(createEvent("A"));
+        close(handler);
+
+        // Session 3: the changes are replayed and "A" removed, the timeline is saved, and "C" is added after the save's snapshot.
+        handler = load(timelineFile);
+        check(!handler.isTimelineSaved(), "Session 3 should replay the changes of session 2.");
+        check(handler.get("A") != null, "Session 3 should replay the addition of A.");
+        check(handler.get("Filler " + (EARLIER_SESSION_CHANGES - 1)) != null, "Session 3 should replay every change of session 2.");
+        handler.remove("A");
+        handler.save(timelineFile, "Check", "Serif", Color.BLACK, Color.WHITE);
+        handler.addEventToTimeline(createEvent("C"));
+        close(handler);
+
+        // Session 4: "A" must stay removed, and only the addition of "C" is replayed.
+        handler = load(timelineFile);
+        check(handler.get("A") == null, "A was removed and saved, but came back when the journal was replayed.");
+        check(handler.get("C") != null, "C was added after the save and should be replayed.");
+        check(handler.getAllEvents().size() == SAVED_EVENTS + EARLIER_SESSION_CHANGES + 1, "Session 4 should hold every saved event and C alone.");
+        close(handler);
+        long sequenceAfterSave;
+        try (TimelineJournal journal = open(timelineFile)) {
+            check(journal.replay(new EventHandler(DATETIME_FORMAT)) == 1, "Only the change made after the save should remain in the journal.");
+            sequenceAfterSave = journal.getLastSequence();
+        }
+
+        // Session 5: once the whole timeline is saved, nothing is replayed, and sequence numbers continue from the compacted journal's header.
+        handler = load(timelineFile);
+        save(handler, timelineFile);
+        close(handler);
+        handler = load(timelineFile);
+        check(handler.isTimelineSaved(), "A fully compacted journal should replay nothing.");
+        check(handler.get("C") != null, "C should have been saved.");
+        handler.addEventToTimeline(createEvent("D"));
+        close(handler);
+        try (TimelineJournal journal = open(timelineFile)) {
+            check(journal.replay(new EventHandler(DATETIME_FORMAT)) == 1, "Only the change made after the last save should be in the journal.");
+            check(journal.getLastSequence() > sequenceAfterSave, "Sequence numbers must keep increasing across sessions.");
+            journal.discard();
+        }
+
+        // Session 6: the same events are changed over and over until the journal compacts itself, which must leave the timeline file untouched.
+        byte[] savedTimeline = Files.readAllBytes(Path.of(timelineFile));
+        handler = load(timelineFile);
+        for (int i = 0; i < REPEATED_CHANGES; i++) { handler.addEventToTimeline(createEvent("Repeated " + (i % REPEATED_NAMES), i)); }
+        close(handler);
+        check(Arrays.equals(savedTimeline, Files.readAllBytes(Path.of(timelineFile))), "Compacting the journal must not write the timeline file.");
+        try (TimelineJournal journal = open(timelineFile)) {
+            check(journal.replay(new EventHandler(DATETIME_FORMAT)) < REPEATED_CHANGES, "The journal should have compacted itself once it grew large.");
+        }
+        handler = load(timelineFile);
+        check(handler.getAllEvents().size() == SAVED_EVENTS + EARLIER_SESSION_CHANGES + 1 + REPEATED_NAMES, "Session 6 should replay every repeated event once.");
+        long lastTime = REPEATED_CHANGES - 1;
+        check(handler.get("Repeated " + (lastTime % REPEATED_NAMES)).startingTime == lastTime, "The latest change of each repeated event should be replayed.");
+        handler.discardJournal();
+        handler.awaitPendingSaves();
+
+        Files.deleteIfExists(Path.of(timelineFile));
+        Files.deleteIfExists(directory);
+        System.out.println("Journal replay check passed.");
+    }
+
+    private static EventHandler load(String timelineFile) throws IOException, ParseException {
+        EventHandler handler = new EventHandler(DATETIME_FORMAT);
+        handler.load(timelineFile);
+        return handler;
+    }
+
+    private static void save(EventHandler handler, String timelineFile) {
+        handler.save(timelineFile, "Check", "Serif", Color.BLACK, Color.WHITE);
+        handler.awaitPendingSaves();
+    }
+
+    private static void close(EventHandler handler) {
+        handler.closeJournal();
+        handler.awaitPendingSaves();
+    }
+
+    private static TimelineJournal open(String timelineFile) throws IOException {
+        TimelineJournal journal = new TimelineJournal(timelineFile, DATETIME_FORMAT);
+        journal.open();
+        return journal;
+    }
+
+    private static Event createEvent(String name) { return createEvent(name, 0L); }
+
+    private static Event createEvent(String name, long time) {
+        return new Event(name, time, time, false, DATETIME_FORMAT, "Serif", Color.BLACK, Color.WHITE, true);
+    }
+
+    private static void check(boolean condition, String failure) {
+        if (!condition) {
+            System.err.println("FAILED: " + failure);
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+#!/bin/sh
+# Compiles the program together with the checks under test/, then runs every check.
+# Each check is a main() program which prints a line on success and exits with a non-zero status on failure, which stops this script.
+# Run from the root of the repository: sh test/run-checks.sh
+set -e
+
+build=$(mktemp -d)
+trap 'rm -rf "$build"' EXIT
+javac -encoding UTF-8 -d "$build" $(find src test -name '*.java')
+
+run() { java -Djava.awt.headless=true -cp "$build" "$@"; }
+
+run eventHandler.SubmitStressCheck
+run eventHandler.TimelineFileWriterCheck
+run eventHandler.TimelineJournalReplayCheck
+
+# Benchmarks are not checks and are not run here; run them by hand against the compiled classes, as in
+# java -cp <classes> eventHandler.TimelineFileWriterBenchmark 1000000